@@ -10,7 +10,6 @@ import com.ttwishing.stretchablelistview.library.StretchableListView;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
 
 public class MainActivity extends AppCompatActivity {
 
@@ -24,20 +23,12 @@ public class MainActivity extends AppCompatActivity {
         ArrayAdapter adapter = new ArrayAdapter(this, android.R.layout.simple_list_item_1, getData());
         listView.setAdapter(adapter);
 
+        //StretchableView会自动注册为StretchListener
         View headerView = LayoutInflater.from(this).inflate(R.layout.list_header, null);
         listView.addHeaderView(headerView);
-        if (headerView instanceof StretchableListView.StretchListener) {
-            stretchListeners.add((StretchableListView.StretchListener) headerView);
-        }
 
         View footerView = LayoutInflater.from(this).inflate(R.layout.list_footer, null);
         listView.addFooterView(footerView);
-        if (footerView instanceof StretchableListView.StretchListener) {
-            stretchListeners.add((StretchableListView.StretchListener) footerView);
-        }
-
-
-        setObservableListView(listView);
     }
 
     private List<String> getData() {
@@ -50,40 +41,4 @@ public class MainActivity extends AppCompatActivity {
 
         return data;
     }
-
-
-    private final List<StretchableListView.StretchListener> stretchListeners = new CopyOnWriteArrayList();
-
-    public void setObservableListView(StretchableListView listView) {
-        listView.setStretchListener(new StretchableListView.StretchListener() {
-
-            @Override
-            public void onStretchHeightChanged(StretchableListView observableListView, int lastStretch, int stretch, boolean force) {
-                for (StretchableListView.StretchListener listener : stretchListeners) {
-                    listener.onStretchHeightChanged(observableListView, lastStretch, stretch, force);
-                }
-            }
-
-            @Override
-            public void onStretchReleaseComplete(StretchableListView observableListView, int stretch, boolean force) {
-                for (StretchableListView.StretchListener listener : stretchListeners) {
-                    listener.onStretchReleaseComplete(observableListView, stretch, force);
-                }
-            }
-
-            @Override
-            public void onStretchStart(StretchableListView observableListView, int lastStretch, int stretch, boolean force) {
-                for (StretchableListView.StretchListener listener : stretchListeners) {
-                    listener.onStretchStart(observableListView, lastStretch, stretch, force);
-                }
-            }
-
-            @Override
-            public void onStretchReleaseStart(StretchableListView observableListView, int height, boolean force) {
-                for (StretchableListView.StretchListener listener : stretchListeners) {
-                    listener.onStretchReleaseStart(observableListView, height, force);
-                }
-            }
-        });
-    }
 }
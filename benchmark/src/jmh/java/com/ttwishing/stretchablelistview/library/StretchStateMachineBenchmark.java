@@ -0,0 +1,131 @@
+package com.ttwishing.stretchablelistview.library;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 将合成的触摸事件流送入StretchStateMachine, 结果为每个事件的耗时(ns/op)
+ * 配合gc profiler得到每个事件的分配(gc.alloc.rate.norm)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class StretchStateMachineBenchmark {
+
+    //一次手势包含的ACTION_MOVE数
+    private static final int MOVES = 120;
+    private static final int TOUCH_SLOP = 16;
+
+    private final float[] pullDown = new float[MOVES];
+    private final float[] pullAndReverse = new float[MOVES];
+
+    private StretchStateMachine stateMachine;
+    private CountingCallback callback;
+
+    @Setup
+    public void setup() {
+        //从顶部下拉: 每个事件4px
+        for (int i = 0; i < MOVES; i++) {
+            pullDown[i] = 100 + i * 4;
+        }
+        //下拉后反向上推越过起点, 触发还原与重新拉伸
+        int half = MOVES / 2;
+        for (int i = 0; i < MOVES; i++) {
+            pullAndReverse[i] = i < half ? 100 + i * 6 : 100 + (MOVES - i) * 6 - 200;
+        }
+        callback = new CountingCallback();
+        stateMachine = new StretchStateMachine(callback, TOUCH_SLOP);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MOVES)
+    public int topStretch(Blackhole blackhole) {
+        return feed(pullDown, true, blackhole);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MOVES)
+    public int topStretchAndReverse(Blackhole blackhole) {
+        return feed(pullAndReverse, true, blackhole);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MOVES)
+    public int bottomStretch(Blackhole blackhole) {
+        //上推时y递减, 到达底部
+        float[] ys = pullDown;
+        StretchStateMachine machine = this.stateMachine;
+        machine.onDown();
+        float lastY = ys[MOVES - 1];
+        for (int i = MOVES - 1; i >= 0; i--) {
+            float y = ys[i];
+            machine.onScroll(lastY - y);
+            lastY = y;
+            blackhole.consume(machine.onMove(y, false, false, true, true));
+        }
+        return machine.reset() + callback.count;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MOVES)
+    public int scrollInMiddle(Blackhole blackhole) {
+        //未到达边缘, 不发生拉伸
+        float[] ys = pullDown;
+        StretchStateMachine machine = this.stateMachine;
+        machine.onDown();
+        float lastY = ys[0];
+        for (int i = 0; i < MOVES; i++) {
+            float y = ys[i];
+            machine.onScroll(lastY - y);
+            lastY = y;
+            blackhole.consume(machine.onMove(y, false, false, false, false));
+        }
+        return machine.reset();
+    }
+
+    private int feed(float[] ys, boolean top, Blackhole blackhole) {
+        StretchStateMachine machine = this.stateMachine;
+        machine.onDown();
+        float lastY = ys[0];
+        for (int i = 0; i < MOVES; i++) {
+            float y = ys[i];
+            machine.onScroll(lastY - y);
+            lastY = y;
+            blackhole.consume(machine.onMove(y, top, top, !top, !top));
+        }
+        return machine.reset() + callback.count;
+    }
+
+    static class CountingCallback implements StretchStateMachine.Callback {
+
+        int count;
+
+        @Override
+        public void onStretchTouch(float y) {
+        }
+
+        @Override
+        public void onStretchRestore(int lastStretch) {
+            count++;
+        }
+
+        @Override
+        public void onStretchStart(int lastStretch, int stretch) {
+            count++;
+        }
+
+        @Override
+        public void onStretchChanged(int lastStretch, int stretch, boolean isStretchDown) {
+            count += stretch;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.ttwishing.stretchablelistview.library;
+
+/**
+ * VerticalResizeAnimation的动画引擎, 每帧由VerticalResizeAnimation驱动一次
+ */
+public interface AnimationEngine {
+
+    /**
+     * 开始新的动画
+     *
+     * @param from     起始值
+     * @param to       目标值
+     * @param duration 期望时长(ms), 基于物理模型的引擎可以忽略
+     */
+    void start(int from, int to, int duration);
+
+    /**
+     * 推进一帧
+     *
+     * @param frameTimeNanos 当前帧的时间戳, 与System.nanoTime()同一时基
+     * @return 动画是否仍在进行
+     */
+    boolean computeFrame(long frameTimeNanos);
+
+    /**
+     * @return 当前值
+     */
+    int getCurrent();
+
+    /**
+     * 动画进行中更换目标值, 保留当前位置与速度
+     *
+     * @param to 新的目标值
+     */
+    void retarget(int to);
+
+    /**
+     * 停止在当前值
+     */
+    void cancel();
+
+    boolean isFinished();
+}
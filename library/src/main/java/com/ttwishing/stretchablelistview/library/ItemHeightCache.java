@@ -0,0 +1,201 @@
+package com.ttwishing.stretchablelistview.library;
+
+import java.util.Arrays;
+
+/**
+ * 按位置记录已布局过的item高度, 未布局过的按平均高度估算,
+ * 用于估算到顶部/底部的距离和内容高度, 不需要遍历children
+ * 固定高度的位置(如StretchableView)视为已知, 但不参与平均高度
+ * 前缀和由树状数组维护, 查询和更新均为O(log n)
+ */
+class ItemHeightCache {
+
+    private static final int UNKNOWN = -1;
+    private static final int NO_TYPE = -1;
+
+    private int size;
+    private int[] heights = new int[0]; //UNKNOWN为未布局过
+    private boolean[] fixed = new boolean[0]; //由putFixed记录
+    private int[] viewTypes = new int[0]; //计入按类型统计的viewType, NO_TYPE为未计入
+    private long[] heightTree = new long[1]; //已知高度的树状数组, 下标从1开始
+    private int[] knownTree = new int[1]; //已知位置数的树状数组
+    //参与平均高度的已知位置
+    private long knownSum;
+    private int knownCount;
+    //固定高度的位置
+    private long fixedSum;
+    private int fixedCount;
+
+    //按viewType统计的高度, 数据变化时保留, 在重新布局前作为估算
+    private long[] typeHeightSum = new long[0];
+    private int[] typeCount = new int[0];
+
+    /**
+     * 清空按位置的记录, 保留按类型的统计
+     *
+     * @param size          item数, 包括header和footer
+     * @param viewTypeCount adapter的getViewTypeCount()
+     */
+    void reset(int size, int viewTypeCount) {
+        this.size = size;
+        if (this.heights.length < size) {
+            this.heights = new int[size];
+            this.fixed = new boolean[size];
+            this.viewTypes = new int[size];
+            this.heightTree = new long[size + 1];
+            this.knownTree = new int[size + 1];
+        } else {
+            Arrays.fill(this.heightTree, 0);
+            Arrays.fill(this.knownTree, 0);
+            Arrays.fill(this.fixed, false);
+        }
+        Arrays.fill(this.heights, UNKNOWN);
+        Arrays.fill(this.viewTypes, NO_TYPE);
+        this.knownSum = 0;
+        this.knownCount = 0;
+        this.fixedSum = 0;
+        this.fixedCount = 0;
+        if (this.typeCount.length != viewTypeCount) {
+            this.typeHeightSum = new long[viewTypeCount];
+            this.typeCount = new int[viewTypeCount];
+        }
+    }
+
+    /**
+     * 清空全部记录, 如更换adapter
+     */
+    void clear() {
+        this.size = 0;
+        this.knownSum = 0;
+        this.knownCount = 0;
+        this.fixedSum = 0;
+        this.fixedCount = 0;
+        Arrays.fill(this.typeHeightSum, 0);
+        Arrays.fill(this.typeCount, 0);
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    /**
+     * 记录位置的高度
+     *
+     * @param viewType 小于0(如header/footer)时不参与按类型的统计
+     */
+    void put(int position, int viewType, int height) {
+        if (position < 0 || position >= this.size) {
+            return;
+        }
+        if (viewType < 0 || viewType >= this.typeCount.length) {
+            viewType = NO_TYPE;
+        }
+        int old = this.heights[position];
+        if (old == height && !this.fixed[position] && this.viewTypes[position] == viewType) {
+            return;
+        }
+        remove(position);
+        this.heights[position] = height;
+        this.viewTypes[position] = viewType;
+        this.knownSum += height;
+        this.knownCount++;
+        if (viewType != NO_TYPE) {
+            this.typeCount[viewType]++;
+            this.typeHeightSum[viewType] += height;
+        }
+        updateTree(position, old);
+    }
+
+    /**
+     * 记录位置的固定高度, 该位置视为已知, 但不参与平均高度和按类型的统计
+     */
+    void putFixed(int position, int height) {
+        if (position < 0 || position >= this.size) {
+            return;
+        }
+        int old = this.heights[position];
+        if (old == height && this.fixed[position]) {
+            return;
+        }
+        remove(position);
+        this.heights[position] = height;
+        this.fixed[position] = true;
+        this.fixedSum += height;
+        this.fixedCount++;
+        updateTree(position, old);
+    }
+
+    //从统计中去掉位置原有的记录, 位置可能在参与平均与固定高度之间, 或在不同viewType之间变化
+    private void remove(int position) {
+        int old = this.heights[position];
+        if (old == UNKNOWN) {
+            return;
+        }
+        if (this.fixed[position]) {
+            this.fixed[position] = false;
+            this.fixedSum -= old;
+            this.fixedCount--;
+            return;
+        }
+        this.knownSum -= old;
+        this.knownCount--;
+        int viewType = this.viewTypes[position];
+        if (viewType != NO_TYPE) {
+            this.typeCount[viewType]--;
+            this.typeHeightSum[viewType] -= old;
+            this.viewTypes[position] = NO_TYPE;
+        }
+    }
+
+    /**
+     * @return 已知item的平均高度, 不包括固定高度的位置; 数据变化后尚未布局时, 按之前各类型的统计估算; 没有记录时为0
+     */
+    int getAverageHeight() {
+        if (this.knownCount > 0) {
+            return (int) (this.knownSum / this.knownCount);
+        }
+        long sum = 0;
+        int count = 0;
+        for (int i = 0; i < this.typeCount.length; i++) {
+            sum += this.typeHeightSum[i];
+            count += this.typeCount[i];
+        }
+        return count == 0 ? 0 : (int) (sum / count);
+    }
+
+    /**
+     * @return [0, position)的估算高度之和, 即position的顶部到内容顶部的距离
+     */
+    long getEstimatedOffset(int position) {
+        if (position <= 0) {
+            return 0;
+        }
+        if (position > this.size) {
+            position = this.size;
+        }
+        long sum = 0;
+        int known = 0;
+        for (int i = position; i > 0; i -= i & -i) {
+            sum += this.heightTree[i];
+            known += this.knownTree[i];
+        }
+        return sum + (long) (position - known) * getAverageHeight();
+    }
+
+    /**
+     * @return 全部item的估算高度之和
+     */
+    long getEstimatedTotal() {
+        return this.knownSum + this.fixedSum + (long) (this.size - this.knownCount - this.fixedCount) * getAverageHeight();
+    }
+
+    //位置的高度由old变为heights[position]
+    private void updateTree(int position, int old) {
+        int heightDelta = old == UNKNOWN ? this.heights[position] : this.heights[position] - old;
+        int knownDelta = old == UNKNOWN ? 1 : 0;
+        for (int i = position + 1; i <= this.size; i += i & -i) {
+            this.heightTree[i] += heightDelta;
+            this.knownTree[i] += knownDelta;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.ttwishing.stretchablelistview.library;
+
+/**
+ * 代替GestureDetector确定滑动方向与fling速度, 结果交给StretchStateMachine
+ * 与GestureDetector的onDown/onScroll/onFling/onSingleTapUp回调时机一致, 但不复制MotionEvent, 不发送Handler消息,
+ * 速度由固定大小的环形缓冲区中的采样点计算, 触摸过程中没有内存分配
+ */
+class ScrollDirectionTracker {
+
+    //与VelocityTracker一致: 只使用最近100ms的采样, 相邻采样间隔超过40ms视为手指已停住
+    private static final int MAX_SAMPLES = 20;
+    private static final long HORIZON_MILLIS = 100L;
+    private static final long ASSUME_STOPPED_MILLIS = 40L;
+
+    private final StretchStateMachine stateMachine;
+    private final int touchSlopSquare;
+    private final int minFlingVelocity;
+    private final int maxFlingVelocity;
+
+    private final float[] sampleX = new float[MAX_SAMPLES];
+    private final float[] sampleY = new float[MAX_SAMPLES];
+    private final long[] sampleTime = new long[MAX_SAMPLES];
+    private int sampleIndex = -1; //最新采样的位置
+    private int sampleCount;
+
+    private float downX;
+    private float downY;
+    private float lastX;
+    private float lastY;
+    //是否仍在点击范围内, 超出touchSlop后才开始onScroll
+    private boolean inTapRegion;
+
+    /**
+     * @param touchSlop        开始滑动的最小距离
+     * @param minFlingVelocity 视为fling的最小速度, 像素/秒
+     * @param maxFlingVelocity fling速度的上限, 像素/秒
+     */
+    ScrollDirectionTracker(StretchStateMachine stateMachine, int touchSlop, int minFlingVelocity, int maxFlingVelocity) {
+        this.stateMachine = stateMachine;
+        this.touchSlopSquare = touchSlop * touchSlop;
+        this.minFlingVelocity = minFlingVelocity;
+        this.maxFlingVelocity = maxFlingVelocity;
+    }
+
+    /**
+     * ACTION_DOWN
+     */
+    void onDown(float x, float y, long timeMillis) {
+        clearSamples();
+        addSample(x, y, timeMillis);
+        this.downX = this.lastX = x;
+        this.downY = this.lastY = y;
+        this.inTapRegion = true;
+        stateMachine.onDown();
+    }
+
+    /**
+     * 只记录速度采样, 用于MotionEvent的历史坐标
+     */
+    void addSample(float x, float y, long timeMillis) {
+        this.sampleIndex = (this.sampleIndex + 1) % MAX_SAMPLES;
+        this.sampleX[this.sampleIndex] = x;
+        this.sampleY[this.sampleIndex] = y;
+        this.sampleTime[this.sampleIndex] = timeMillis;
+        if (this.sampleCount < MAX_SAMPLES) {
+            this.sampleCount++;
+        }
+    }
+
+    /**
+     * ACTION_MOVE, 对应GestureDetector.onScroll
+     */
+    void onMove(float x, float y, long timeMillis) {
+        addSample(x, y, timeMillis);
+        float distanceX = this.lastX - x;
+        float distanceY = this.lastY - y;
+        if (this.inTapRegion) {
+            float deltaX = x - this.downX;
+            float deltaY = y - this.downY;
+            if (deltaX * deltaX + deltaY * deltaY > this.touchSlopSquare) {
+                this.inTapRegion = false;
+                scroll(x, y, distanceY);
+            }
+        } else if (Math.abs(distanceX) >= 1 || Math.abs(distanceY) >= 1) {
+            scroll(x, y, distanceY);
+        }
+    }
+
+    private void scroll(float x, float y, float distanceY) {
+        stateMachine.onScroll(distanceY);
+        this.lastX = x;
+        this.lastY = y;
+    }
+
+    /**
+     * 更换跟踪的手指, 从新手指的位置继续, 不产生跳变
+     */
+    void onPointerChanged(float x, float y, long timeMillis) {
+        clearSamples();
+        addSample(x, y, timeMillis);
+        this.downX = this.lastX = x;
+        this.downY = this.lastY = y;
+    }
+
+    /**
+     * ACTION_UP, 对应GestureDetector.onSingleTapUp/onFling
+     */
+    void onUp(float x, float y, long timeMillis) {
+        addSample(x, y, timeMillis);
+        if (this.inTapRegion) {
+            stateMachine.resetScroll();
+        } else {
+            float velocityX = clampVelocity(computeVelocity(this.sampleX));
+            float velocityY = clampVelocity(computeVelocity(this.sampleY));
+            if (Math.abs(velocityY) > this.minFlingVelocity || Math.abs(velocityX) > this.minFlingVelocity) {
+                stateMachine.onFling(velocityX, velocityY);
+            }
+        }
+        clearSamples();
+    }
+
+    /**
+     * ACTION_CANCEL
+     */
+    void onCancel() {
+        clearSamples();
+        this.inTapRegion = false;
+    }
+
+    private void clearSamples() {
+        this.sampleIndex = -1;
+        this.sampleCount = 0;
+    }
+
+    private float clampVelocity(float velocity) {
+        return Math.max(-this.maxFlingVelocity, Math.min(velocity, this.maxFlingVelocity));
+    }
+
+    /**
+     * 对最近的采样做最小二乘直线拟合, 斜率即速度
+     *
+     * @param position sampleX或sampleY
+     * @return 像素/秒
+     */
+    private float computeVelocity(float[] position) {
+        long newestTime = this.sampleTime[this.sampleIndex];
+
+        //确定参与拟合的采样数
+        int count = 1;
+        long previousTime = newestTime;
+        while (count < this.sampleCount) {
+            long time = this.sampleTime[indexAt(count)];
+            if (newestTime - time > HORIZON_MILLIS || previousTime - time > ASSUME_STOPPED_MILLIS) {
+                break;
+            }
+            previousTime = time;
+            count++;
+        }
+        if (count < 2) {
+            return 0;
+        }
+
+        //以最新采样为原点, 避免精度损失
+        float newestPosition = position[this.sampleIndex];
+        float sumT = 0, sumP = 0;
+        for (int i = 0; i < count; i++) {
+            int index = indexAt(i);
+            sumT += this.sampleTime[index] - newestTime;
+            sumP += position[index] - newestPosition;
+        }
+        float meanT = sumT / count;
+        float meanP = sumP / count;
+        float covariance = 0, variance = 0;
+        for (int i = 0; i < count; i++) {
+            int index = indexAt(i);
+            float t = this.sampleTime[index] - newestTime - meanT;
+            covariance += t * (position[index] - newestPosition - meanP);
+            variance += t * t;
+        }
+        if (variance == 0) {
+            return 0;
+        }
+        return covariance / variance * 1000;
+    }
+
+    //第age个较旧的采样, 0为最新
+    private int indexAt(int age) {
+        return (this.sampleIndex - age + MAX_SAMPLES) % MAX_SAMPLES;
+    }
+}
@@ -0,0 +1,109 @@
+package com.ttwishing.stretchablelistview.library;
+
+import android.view.animation.DecelerateInterpolator;
+import android.view.animation.Interpolator;
+
+/**
+ * 与Scroller.startScroll相同的时长+插值器动画, 但按帧时间戳推进, 不读取系统时钟
+ */
+public class ScrollerAnimationEngine implements AnimationEngine {
+
+    private static final int MIN_RETARGET_DURATION = 100;
+
+    private static final long NANOS_PER_MILLI = 1000000L;
+    //第一帧视为距开始已过一帧, 与Scroller在下一帧才取值一致
+    private static final long DEFAULT_FRAME_NANOS = 16666667L;
+    //数值求导的步长(按进度)
+    private static final float SLOPE_STEP = 0.001F;
+
+    private final Interpolator interpolator;
+
+    private int from;
+    private int to;
+    private float carry; //retarget时为保留速度叠加的s*(1-s)^2项的系数(px), 新一段动画结束时衰减为0
+    private int current;
+    private long durationNanos;
+    private long startTimeNanos; //0为尚未推进过
+    private long elapsedNanos;
+    private boolean finished = true;
+
+    public ScrollerAnimationEngine() {
+        this(null);
+    }
+
+    /**
+     * @param interpolator 为null时使用DecelerateInterpolator
+     */
+    public ScrollerAnimationEngine(Interpolator interpolator) {
+        this.interpolator = interpolator != null ? interpolator : new DecelerateInterpolator();
+    }
+
+    @Override
+    public void start(int from, int to, int duration) {
+        this.from = from;
+        this.to = to;
+        this.carry = 0;
+        this.current = from;
+        this.durationNanos = Math.max(duration, 0) * NANOS_PER_MILLI;
+        this.startTimeNanos = 0;
+        this.elapsedNanos = 0;
+        this.finished = false;
+    }
+
+    @Override
+    public boolean computeFrame(long frameTimeNanos) {
+        if (this.finished) {
+            return false;
+        }
+        if (this.startTimeNanos == 0) {
+            this.startTimeNanos = frameTimeNanos - DEFAULT_FRAME_NANOS;
+        }
+        this.elapsedNanos = frameTimeNanos - this.startTimeNanos;
+        if (this.elapsedNanos >= this.durationNanos) {
+            this.current = this.to;
+            this.finished = true;
+            return false;
+        }
+        this.current = Math.round(positionAt((float) this.elapsedNanos / this.durationNanos));
+        return true;
+    }
+
+    private float positionAt(float fraction) {
+        float remaining = 1 - fraction;
+        return this.from + this.interpolator.getInterpolation(fraction) * (this.to - this.from)
+                + this.carry * fraction * remaining * remaining;
+    }
+
+    //位置对进度的导数(px)
+    private float slopeAt(float fraction) {
+        float start = Math.min(fraction, 1 - SLOPE_STEP);
+        return (positionAt(start + SLOPE_STEP) - positionAt(start)) / SLOPE_STEP;
+    }
+
+    @Override
+    public int getCurrent() {
+        return this.current;
+    }
+
+    @Override
+    public void retarget(int to) {
+        //以剩余时长从当前位置开始新的一段, 叠加carry项使初速度与当前速度一致
+        float velocity = 0; //px/ns
+        if (!this.finished && this.durationNanos > 0) {
+            velocity = slopeAt((float) this.elapsedNanos / this.durationNanos) / this.durationNanos;
+        }
+        int remaining = (int) ((this.durationNanos - this.elapsedNanos) / NANOS_PER_MILLI);
+        start(this.current, to, Math.max(remaining, MIN_RETARGET_DURATION));
+        this.carry = velocity * this.durationNanos - slopeAt(0);
+    }
+
+    @Override
+    public void cancel() {
+        this.finished = true;
+    }
+
+    @Override
+    public boolean isFinished() {
+        return this.finished;
+    }
+}
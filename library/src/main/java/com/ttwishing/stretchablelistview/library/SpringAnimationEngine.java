@@ -0,0 +1,109 @@
+package com.ttwishing.stretchablelistview.library;
+
+/**
+ * 临界阻尼弹簧: 按帧间隔对解析解积分, 状态只有基本类型, 每帧不分配对象
+ * 偏移量小于1px时即结束
+ */
+public class SpringAnimationEngine implements AnimationEngine {
+
+    public static final float STIFFNESS_HIGH = 10000.0F;
+    public static final float STIFFNESS_MEDIUM = 1500.0F;
+    public static final float STIFFNESS_LOW = 200.0F;
+
+    private static final double NANOS_PER_SECOND = 1000000000.0;
+    private static final double DEFAULT_FRAME_SECONDS = 1.0 / 60.0;
+
+    //无阻尼固有频率, 即sqrt(stiffness)
+    private final double omega;
+
+    private double position;
+    private double velocity; //px/s
+    private double target;
+    private long lastFrameTimeNanos;
+    private boolean running;
+
+    public SpringAnimationEngine() {
+        this(STIFFNESS_MEDIUM);
+    }
+
+    /**
+     * @param stiffness 弹簧刚度, 越大回弹越快
+     */
+    public SpringAnimationEngine(float stiffness) {
+        if (stiffness <= 0) {
+            throw new IllegalArgumentException("stiffness must be positive: " + stiffness);
+        }
+        this.omega = Math.sqrt(stiffness);
+    }
+
+    @Override
+    public void start(int from, int to, int duration) {
+        this.position = from;
+        this.velocity = 0;
+        this.target = to;
+        this.lastFrameTimeNanos = 0;
+        this.running = from != to;
+    }
+
+    @Override
+    public boolean computeFrame(long frameTimeNanos) {
+        if (!this.running) {
+            return false;
+        }
+        double dt;
+        if (this.lastFrameTimeNanos == 0 || frameTimeNanos <= this.lastFrameTimeNanos) {
+            dt = DEFAULT_FRAME_SECONDS;
+        } else {
+            dt = (frameTimeNanos - this.lastFrameTimeNanos) / NANOS_PER_SECOND;
+        }
+        this.lastFrameTimeNanos = frameTimeNanos;
+
+        //x(t) = (x0 + (v0 + ω·x0)·t)·e^(-ω·t)
+        double x0 = this.position - this.target;
+        double c = this.velocity + this.omega * x0;
+        double decay = Math.exp(-this.omega * dt);
+        double x = (x0 + c * dt) * decay;
+        this.velocity = (c - this.omega * (x0 + c * dt)) * decay;
+
+        if (Math.abs(x) < 1.0) {
+            this.position = this.target;
+            this.velocity = 0;
+            this.running = false;
+            return false;
+        }
+        this.position = this.target + x;
+        return true;
+    }
+
+    @Override
+    public int getCurrent() {
+        return (int) Math.round(this.position);
+    }
+
+    /**
+     * @return 当前速度, px/s
+     */
+    public float getVelocity() {
+        return (float) this.velocity;
+    }
+
+    @Override
+    public void retarget(int to) {
+        this.target = to;
+        if (!this.running) {
+            this.lastFrameTimeNanos = 0;
+            this.running = Math.abs(this.position - to) >= 1.0;
+        }
+    }
+
+    @Override
+    public void cancel() {
+        this.velocity = 0;
+        this.running = false;
+    }
+
+    @Override
+    public boolean isFinished() {
+        return !this.running;
+    }
+}
@@ -0,0 +1,40 @@
+package com.ttwishing.stretchablelistview.library;
+
+import android.graphics.Canvas;
+import android.graphics.drawable.Drawable;
+import android.support.v7.widget.RecyclerView;
+
+/**
+ * 在StretchableRecyclerView拉伸露出的区域内绘制, 相当于header/footer的StretchableView,
+ * 只参与绘制, 不占用item的位置
+ */
+public class StretchDecoration extends RecyclerView.ItemDecoration {
+
+    private final Drawable topDrawable;
+    private final Drawable bottomDrawable;
+
+    /**
+     * @param topDrawable    顶部拉伸时绘制, 可为null
+     * @param bottomDrawable 底部拉伸时绘制, 可为null
+     */
+    public StretchDecoration(Drawable topDrawable, Drawable bottomDrawable) {
+        this.topDrawable = topDrawable;
+        this.bottomDrawable = bottomDrawable;
+    }
+
+    @Override
+    public void onDraw(Canvas c, RecyclerView parent, RecyclerView.State state) {
+        if (!(parent instanceof StretchableRecyclerView)) {
+            return;
+        }
+        int stretch = ((StretchableRecyclerView) parent).getStretch();
+        if (stretch < 0 && topDrawable != null) {
+            topDrawable.setBounds(0, 0, parent.getWidth(), -stretch);
+            topDrawable.draw(c);
+        } else if (stretch > 0 && bottomDrawable != null) {
+            int height = parent.getHeight();
+            bottomDrawable.setBounds(0, height - stretch, parent.getWidth(), height);
+            bottomDrawable.draw(c);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.ttwishing.stretchablelistview.library;
+
+/**
+ * StretchListener的分发: 监听者保存在数组中, 增删时复制数组(copy-on-write),
+ * 分发时直接遍历当前数组, 不产生Iterator等临时对象
+ * 回调的耗时与拉伸次数计入StretchMetrics
+ */
+class StretchListenerRegistry implements StretchableListView.StretchListener {
+
+    private static final StretchableListView.StretchListener[] EMPTY = new StretchableListView.StretchListener[0];
+
+    private StretchableListView.StretchListener[] listeners = EMPTY;
+    private final StretchMetrics metrics;
+    private int gestureTraceCookie; //当前拉伸的异步trace区间
+
+    StretchListenerRegistry(StretchMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    boolean add(StretchableListView.StretchListener listener) {
+        if (listener == null || indexOf(listener) >= 0) {
+            return false;
+        }
+        StretchableListView.StretchListener[] array = this.listeners;
+        StretchableListView.StretchListener[] newArray = new StretchableListView.StretchListener[array.length + 1];
+        System.arraycopy(array, 0, newArray, 0, array.length);
+        newArray[array.length] = listener;
+        this.listeners = newArray;
+        return true;
+    }
+
+    boolean remove(StretchableListView.StretchListener listener) {
+        int index = indexOf(listener);
+        if (index < 0) {
+            return false;
+        }
+        StretchableListView.StretchListener[] array = this.listeners;
+        if (array.length == 1) {
+            this.listeners = EMPTY;
+        } else {
+            StretchableListView.StretchListener[] newArray = new StretchableListView.StretchListener[array.length - 1];
+            System.arraycopy(array, 0, newArray, 0, index);
+            System.arraycopy(array, index + 1, newArray, index, array.length - index - 1);
+            this.listeners = newArray;
+        }
+        return true;
+    }
+
+    private int indexOf(StretchableListView.StretchListener listener) {
+        StretchableListView.StretchListener[] array = this.listeners;
+        for (int i = 0; i < array.length; i++) {
+            if (array[i] == listener) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public void onStretchHeightChanged(StretchableListView listView, int lastStretch, int stretch, boolean force) {
+        StretchableListView.StretchListener[] array = this.listeners;
+        boolean traced = StretchTrace.beginSection(StretchTrace.SECTION_DISPATCH);
+        long start = System.nanoTime();
+        for (int i = 0; i < array.length; i++) {
+            array[i].onStretchHeightChanged(listView, lastStretch, stretch, force);
+        }
+        metrics.listenerTimeNanos += System.nanoTime() - start;
+        StretchTrace.endSection(traced);
+    }
+
+    @Override
+    public void onStretchStart(StretchableListView listView, int lastStretch, int stretch, boolean force) {
+        metrics.stretchCount++;
+        StretchTrace.endAsyncSection(StretchTrace.ASYNC_GESTURE, gestureTraceCookie);
+        gestureTraceCookie = StretchTrace.beginAsyncSection(StretchTrace.ASYNC_GESTURE);
+        StretchableListView.StretchListener[] array = this.listeners;
+        boolean traced = StretchTrace.beginSection(StretchTrace.SECTION_DISPATCH);
+        long start = System.nanoTime();
+        for (int i = 0; i < array.length; i++) {
+            array[i].onStretchStart(listView, lastStretch, stretch, force);
+        }
+        metrics.listenerTimeNanos += System.nanoTime() - start;
+        StretchTrace.endSection(traced);
+    }
+
+    @Override
+    public void onStretchReleaseStart(StretchableListView listView, int stretch, boolean force) {
+        StretchableListView.StretchListener[] array = this.listeners;
+        boolean traced = StretchTrace.beginSection(StretchTrace.SECTION_DISPATCH);
+        long start = System.nanoTime();
+        for (int i = 0; i < array.length; i++) {
+            array[i].onStretchReleaseStart(listView, stretch, force);
+        }
+        metrics.listenerTimeNanos += System.nanoTime() - start;
+        StretchTrace.endSection(traced);
+    }
+
+    @Override
+    public void onStretchReleaseComplete(StretchableListView listView, int lastStretch, boolean force) {
+        StretchableListView.StretchListener[] array = this.listeners;
+        boolean traced = StretchTrace.beginSection(StretchTrace.SECTION_DISPATCH);
+        long start = System.nanoTime();
+        for (int i = 0; i < array.length; i++) {
+            array[i].onStretchReleaseComplete(listView, lastStretch, force);
+        }
+        metrics.listenerTimeNanos += System.nanoTime() - start;
+        StretchTrace.endSection(traced);
+        StretchTrace.endAsyncSection(StretchTrace.ASYNC_GESTURE, gestureTraceCookie);
+        gestureTraceCookie = 0;
+    }
+}
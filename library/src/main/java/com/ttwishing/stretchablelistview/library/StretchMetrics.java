@@ -0,0 +1,60 @@
+package com.ttwishing.stretchablelistview.library;
+
+/**
+ * 拉伸的开销统计, 由StretchableListView用基本类型的计数器收集, 可在release版本中常开
+ * 通过StretchableListView.getStretchMetrics获取快照
+ */
+public class StretchMetrics {
+
+    long stretchCount;          //拉伸次数(onStretchStart)
+    long animationFrameCount;   //VerticalResizeAnimation推进的帧数
+    long layoutPassCount;       //StretchableView.setStretchedHeight触发的布局次数
+    long frameOverBudgetCount;  //释放动画中超出帧预算(掉帧)的帧数
+    long listenerTimeNanos;     //StretchListener回调的累计耗时
+
+    public long getStretchCount() {
+        return stretchCount;
+    }
+
+    public long getAnimationFrameCount() {
+        return animationFrameCount;
+    }
+
+    public long getLayoutPassCount() {
+        return layoutPassCount;
+    }
+
+    public long getFrameOverBudgetCount() {
+        return frameOverBudgetCount;
+    }
+
+    public long getListenerTimeNanos() {
+        return listenerTimeNanos;
+    }
+
+    void set(StretchMetrics other) {
+        this.stretchCount = other.stretchCount;
+        this.animationFrameCount = other.animationFrameCount;
+        this.layoutPassCount = other.layoutPassCount;
+        this.frameOverBudgetCount = other.frameOverBudgetCount;
+        this.listenerTimeNanos = other.listenerTimeNanos;
+    }
+
+    void reset() {
+        this.stretchCount = 0;
+        this.animationFrameCount = 0;
+        this.layoutPassCount = 0;
+        this.frameOverBudgetCount = 0;
+        this.listenerTimeNanos = 0;
+    }
+
+    @Override
+    public String toString() {
+        return "StretchMetrics{stretchCount=" + stretchCount
+                + ", animationFrameCount=" + animationFrameCount
+                + ", layoutPassCount=" + layoutPassCount
+                + ", frameOverBudgetCount=" + frameOverBudgetCount
+                + ", listenerTimeNanos=" + listenerTimeNanos
+                + '}';
+    }
+}
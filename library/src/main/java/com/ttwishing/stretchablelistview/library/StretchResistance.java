@@ -0,0 +1,87 @@
+package com.ttwishing.stretchablelistview.library;
+
+/**
+ * 拉伸阻尼曲线: 由手指拖动的距离得到拉伸高度
+ * 设置到StretchableListView后按列表高度预先计算成查找表, 触摸过程中只做数组访问
+ */
+public abstract class StretchResistance {
+
+    /**
+     * @param distance  手指拖动的距离, 不小于0
+     * @param dimension 列表的高度
+     * @return 拉伸高度, 不小于0, 随distance单调不减
+     */
+    public abstract float getStretch(float distance, int dimension);
+
+    /**
+     * 预先计算[0, 2 * dimension]范围内每个像素的拉伸高度, 超出范围的拖动按最后一项处理
+     */
+    int[] buildTable(int dimension) {
+        int[] table = new int[Math.max(dimension, 1) * 2 + 1];
+        for (int distance = 1; distance < table.length; distance++) {
+            int stretch = (int) getStretch(distance, dimension);
+            //保证单调, 以便由拉伸高度反查拖动距离
+            table[distance] = Math.max(stretch, table[distance - 1]);
+        }
+        return table;
+    }
+
+    /**
+     * 线性, 与默认的阻尼一致时ratio为0.5
+     */
+    public static StretchResistance linear(final float ratio) {
+        return new StretchResistance() {
+            @Override
+            public float getStretch(float distance, int dimension) {
+                return distance * ratio;
+            }
+        };
+    }
+
+    /**
+     * 橡皮筋: 起始斜率为coefficient, 拉伸高度趋近于列表高度, 类似iOS的回弹
+     *
+     * @param coefficient 如0.55
+     */
+    public static StretchResistance rubberBand(final float coefficient) {
+        return new StretchResistance() {
+            @Override
+            public float getStretch(float distance, int dimension) {
+                if (dimension <= 0) {
+                    return 0;
+                }
+                return (1.0F - 1.0F / (distance * coefficient / dimension + 1.0F)) * dimension;
+            }
+        };
+    }
+
+    /**
+     * 对数: 起始斜率为0.5, 之后越拉越难; 曲线本身不趋近某个高度,
+     * 但查找表只覆盖2 * dimension的拖动距离, 拉伸高度最多为getStretch(2 * dimension, dimension)
+     *
+     * @param factor 曲线的尺度占列表高度的比例, 越大越接近线性
+     */
+    public static StretchResistance logarithmic(final float factor) {
+        return new StretchResistance() {
+            @Override
+            public float getStretch(float distance, int dimension) {
+                float scale = Math.max(factor * dimension, 1.0F);
+                return (float) (scale * Math.log(1.0 + distance / (2.0 * scale)));
+            }
+        };
+    }
+
+    /**
+     * 在另一条曲线的基础上限制最大拉伸高度
+     *
+     * @param maxStretch 最大拉伸高度, 像素
+     */
+    public static StretchResistance capped(final StretchResistance resistance, final int maxStretch) {
+        return new StretchResistance() {
+            @Override
+            public float getStretch(float distance, int dimension) {
+                return Math.min(resistance.getStretch(distance, dimension), maxStretch);
+            }
+        };
+    }
+}
@@ -0,0 +1,307 @@
+package com.ttwishing.stretchablelistview.library;
+
+import com.ttwishing.stretchablelistview.library.util.ListUtils;
+
+/**
+ * 拉伸状态机: 根据滑动方向与列表是否到达边缘, 由ACTION_MOVE的y坐标计算拉伸高度,
+ * 并通过Callback通知拉伸的开始/变化/还原
+ * 由StretchableListView和StretchableRecyclerView共用
+ */
+class StretchStateMachine {
+
+    interface Callback {
+        //触点进入拉伸区域, 正在进行的释放动画应停在当前高度, 由grab从y继续拉伸
+        void onStretchTouch(float y);
+
+        //拉伸已回到原点, 需要还原
+        void onStretchRestore(int lastStretch);
+
+        //开始拉伸
+        void onStretchStart(int lastStretch, int stretch);
+
+        //拉伸程度变化
+        void onStretchChanged(int lastStretch, int stretch, boolean isStretchDown);
+    }
+
+    private final Callback callback;
+    private final int touchSlop;
+
+    private float lastMotionY = -1.0F;
+    private boolean hasMotionY; //lastMotionY是否有效, 拖动中途接管时可能为负
+    private int lastStretch = 0;
+    private boolean unStretched;
+
+    //拖动距离(像素)到拉伸高度的查找表, 为null时为拖动距离的一半
+    private int[] resistanceTable;
+
+    // 手势下滑：为正 手势上滑：为负
+    private float scrolledDistance = 0.0F;
+    private ListUtils.ScrollDirection scrollDirection = ListUtils.ScrollDirection.DOWN;
+    private boolean hasReset = false;
+    private float flingVelocityY = 0.0F;
+
+    StretchStateMachine(Callback callback, int touchSlop) {
+        this.callback = callback;
+        this.touchSlop = touchSlop;
+    }
+
+    /**
+     * @param y                当前触点的y坐标
+     * @param atFirstPosition  第一个item是否在可见范围内
+     * @param firstItemVisible 第一个item是否完整可见(到达顶部)
+     * @param atLastPosition   最后一个item是否在可见范围内
+     * @param lastItemVisible  最后一个item是否完整可见(到达底部)
+     * @return 事件是否由拉伸消费
+     */
+    boolean onMove(float y, boolean atFirstPosition, boolean firstItemVisible, boolean atLastPosition, boolean lastItemVisible) {
+        return onMove(y, y, atFirstPosition, firstItemVisible, atLastPosition, lastItemVisible);
+    }
+
+    /**
+     * @param y          当前触点的y坐标, 作为拉伸的起点
+     * @param predictedY 预测的y坐标, 用于计算拉伸高度
+     */
+    boolean onMove(float y, float predictedY, boolean atFirstPosition, boolean firstItemVisible, boolean atLastPosition, boolean lastItemVisible) {
+        //是否顶部stretch拉伸或还原
+        boolean isStretchUp = isStretchUp(atFirstPosition, firstItemVisible);
+
+        //是否底部stretch拉伸或还原
+        boolean isStretchDown = isStretchDown(atLastPosition, lastItemVisible);
+
+        if (!isStretchUp && !isStretchDown) {
+            boolean isStretching = this.lastStretch != 0;
+            this.lastStretch = 0;
+            this.lastMotionY = -1;
+            this.hasMotionY = false;
+            return isStretching;
+        }
+
+        callback.onStretchTouch(y);
+
+        //是否是滑动的起始
+        boolean firstStretch = !this.hasMotionY;
+
+        int oldStretchHeight = 0;
+        if (!firstStretch) {
+            oldStretchHeight = this.lastStretch;
+        }
+
+        //确定滑动高度
+        int stretchHeight = 0;
+        if (!firstStretch) {
+            stretchHeight = resist((int) (this.lastMotionY - predictedY));
+        }
+
+        boolean unStretched = (oldStretchHeight < 0 && stretchHeight >= 0) || (oldStretchHeight > 0 && stretchHeight <= 0);
+        if (firstStretch || unStretched) {
+            this.unStretched = true;
+        }
+
+        if (firstStretch) {
+            this.lastMotionY = y;
+            this.hasMotionY = true;
+        }
+
+        boolean isStretching;
+        if (unStretched) {
+            callback.onStretchRestore(oldStretchHeight);
+            if (stretchHeight < 0 && isStretchUp) {
+                oldStretchHeight = -1;
+            } else if (stretchHeight > 0 && isStretchDown) {
+                oldStretchHeight = 1;
+            } else {
+                stretchHeight = 0;
+                oldStretchHeight = 0;
+            }
+            isStretching = true;
+        } else {
+            isStretching = oldStretchHeight != stretchHeight;
+        }
+
+        this.lastStretch = stretchHeight;
+        if (isStretching) {
+            if (this.unStretched) {
+                this.unStretched = false;
+                callback.onStretchStart(oldStretchHeight, stretchHeight);
+            }
+            callback.onStretchChanged(oldStretchHeight, stretchHeight, isStretchDown);
+        }
+        return true;
+    }
+
+    /**
+     * 下一次onMove是否会由拉伸消费, 参数同onMove
+     */
+    boolean willStretch(boolean atFirstPosition, boolean firstItemVisible, boolean atLastPosition, boolean lastItemVisible) {
+        return isStretchUp(atFirstPosition, firstItemVisible) || isStretchDown(atLastPosition, lastItemVisible);
+    }
+
+    private boolean isStretchUp(boolean atFirstPosition, boolean firstItemVisible) {
+        return (atFirstPosition && this.lastStretch < 0) || (firstItemVisible && this.scrollDirection == ListUtils.ScrollDirection.UP);
+    }
+
+    private boolean isStretchDown(boolean atLastPosition, boolean lastItemVisible) {
+        return (atLastPosition && this.lastStretch > 0) || (lastItemVisible && this.scrollDirection == ListUtils.ScrollDirection.DOWN);
+    }
+
+    /**
+     * 结束本次拉伸
+     *
+     * @return 结束前的拉伸高度, 不为0时需要释放
+     */
+    int reset() {
+        int stretch = this.lastStretch;
+        this.lastStretch = 0;
+        this.lastMotionY = -1.0F;
+        this.hasMotionY = false;
+        return stretch;
+    }
+
+    /**
+     * 在释放动画中途重新拖动, 以当前拉伸高度为起点继续
+     *
+     * @param y       当前触点的y坐标
+     * @param stretch 动画当前的拉伸高度
+     */
+    void grab(float y, int stretch) {
+        this.lastMotionY = y + unresist(stretch);
+        this.hasMotionY = true;
+        this.lastStretch = stretch;
+        this.unStretched = false;
+    }
+
+    /**
+     * @param resistanceTable 下标为拖动距离, 值为拉伸高度, 须单调不减; null为默认的一半
+     */
+    void setResistanceTable(int[] resistanceTable) {
+        this.resistanceTable = resistanceTable;
+    }
+
+    //拖动距离 -> 拉伸高度
+    private int resist(int distance) {
+        int[] table = this.resistanceTable;
+        if (table == null) {
+            return distance / 2;
+        }
+        int abs = Math.abs(distance);
+        int stretch = abs < table.length ? table[abs] : table[table.length - 1];
+        return distance < 0 ? -stretch : stretch;
+    }
+
+    //拉伸高度 -> 拖动距离, 取能达到该高度的最小距离
+    private int unresist(int stretch) {
+        int[] table = this.resistanceTable;
+        if (table == null) {
+            return stretch * 2;
+        }
+        int abs = Math.abs(stretch);
+        int low = 0;
+        int high = table.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (table[mid] < abs) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return stretch < 0 ? -low : low;
+    }
+
+    /**
+     * 更换跟踪的手指时平移起点, 使拉伸高度保持连续
+     *
+     * @param dy 新手指与原手指y坐标之差
+     */
+    void offsetMotionY(float dy) {
+        if (this.hasMotionY) {
+            this.lastMotionY += dy;
+        }
+    }
+
+    int getLastStretch() {
+        return this.lastStretch;
+    }
+
+    void setLastStretch(int lastStretch) {
+        this.lastStretch = lastStretch;
+    }
+
+    /**
+     * 按下, 开始新的手势
+     */
+    void onDown() {
+        resetScroll();
+        this.flingVelocityY = 0.0F;
+    }
+
+    /**
+     * 滑动, 确定滑动方向
+     *
+     * @param distanceY 自上次滑动以来的距离, 手势上滑为正
+     */
+    void onScroll(float distanceY) {
+        if (this.hasReset) {
+            this.hasReset = false;
+            return;
+        }
+        float scrolledDistance = Math.abs(distanceY);
+
+        //手势上滑 || 手抛下滑 || 滑动距离不足
+        if ((this.scrolledDistance >= 0.0F && distanceY > 0.0F) || (this.scrolledDistance <= 0.0F && distanceY < 0.0F) || scrolledDistance < this.touchSlop) {
+            this.scrolledDistance = distanceY + this.scrolledDistance;
+        } else {
+            this.scrolledDistance = 0;
+        }
+        if (distanceY < 0.0F) { //手势为向下
+            this.scrollDirection = ListUtils.ScrollDirection.UP;
+        } else {
+            this.scrollDirection = ListUtils.ScrollDirection.DOWN;
+        }
+    }
+
+    /**
+     * 手抛
+     *
+     * @param velocityX
+     * @param velocityY 手势下滑为正
+     */
+    void onFling(float velocityX, float velocityY) {
+        boolean isVertical = false;
+        if (Math.abs(velocityY) > Math.abs(velocityX)) {
+            //偏纵向滑动
+            isVertical = true;
+        }
+        this.scrollDirection = ListUtils.ScrollDirection.fromVelocity(scrollDirection, velocityX, velocityY, isVertical);
+
+        //手势下滑为正; 手势上滑为负
+        this.scrolledDistance = -velocityY;
+        if (isVertical) {
+            this.flingVelocityY = velocityY;
+        }
+    }
+
+    void resetScroll() {
+        this.scrolledDistance = 0.0F;
+        this.hasReset = true;
+    }
+
+    float getScrolledDistance() {
+        return this.scrolledDistance;
+    }
+
+    /**
+     * @return 最近一次纵向fling的速度, 手势下滑为正; 没有fling时为0
+     */
+    float getFlingVelocityY() {
+        return this.flingVelocityY;
+    }
+
+    ListUtils.ScrollDirection getScrollDirection() {
+        return this.scrollDirection;
+    }
+
+    void setScrollDirection(ListUtils.ScrollDirection direction) {
+        this.scrollDirection = direction;
+    }
+}
@@ -0,0 +1,129 @@
+package com.ttwishing.stretchablelistview.library;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Trace;
+import android.util.Log;
+
+import java.lang.reflect.Method;
+
+/**
+ * 拉伸各阶段的systrace/Perfetto标记, 默认关闭
+ * 关闭或API 18以下时只有一次静态字段判断
+ * 异步区间(API 29)在compileSdk 23中不可见, 通过反射调用, Method只查找一次
+ * 只在主线程使用
+ */
+public final class StretchTrace {
+
+    private static final String TAG = StretchTrace.class.getSimpleName();
+
+    static final String SECTION_TOUCH = "StretchableListView#onTouchEvent";
+    static final String SECTION_RESET_HEIGHT = "StretchableListView#resetHeight";
+    static final String SECTION_ANIMATION_FRAME = "VerticalResizeAnimation#frame";
+    static final String SECTION_DISPATCH = "StretchListener#dispatch";
+    //异步区间: 从onStretchStart到onStretchReleaseComplete
+    static final String ASYNC_GESTURE = "StretchGesture";
+
+    //Build.VERSION_CODES.Q
+    private static final int VERSION_Q = 29;
+
+    private static final boolean SUPPORTED = Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2;
+    private static final boolean ASYNC_SUPPORTED = Build.VERSION.SDK_INT >= VERSION_Q;
+
+    private static boolean enabled;
+    private static int nextCookie;
+
+    //首次开始异步区间时查找, 失败后不再调用
+    private static boolean asyncResolved;
+    private static Method beginAsyncSection;
+    private static Method endAsyncSection;
+
+    private StretchTrace() {
+    }
+
+    /**
+     * 开启后在trace中显示拉伸的各阶段, 用于定位卡顿
+     */
+    public static void setEnabled(boolean enabled) {
+        StretchTrace.enabled = enabled;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return 是否开始了区间, 作为endSection的参数, 保证begin/end成对
+     */
+    static boolean beginSection(String name) {
+        if (!enabled || !SUPPORTED) {
+            return false;
+        }
+        beginSectionCompat(name);
+        return true;
+    }
+
+    static void endSection(boolean began) {
+        if (began) {
+            endSectionCompat();
+        }
+    }
+
+    /**
+     * @return 区间的cookie, 0为未开始
+     */
+    static int beginAsyncSection(String name) {
+        if (!enabled || !ASYNC_SUPPORTED || !resolveAsync()) {
+            return 0;
+        }
+        nextCookie++;
+        if (nextCookie == 0) {
+            nextCookie = 1;
+        }
+        if (!invoke(beginAsyncSection, name, nextCookie)) {
+            return 0;
+        }
+        return nextCookie;
+    }
+
+    static void endAsyncSection(String name, int cookie) {
+        if (cookie != 0) {
+            invoke(endAsyncSection, name, cookie);
+        }
+    }
+
+    private static boolean resolveAsync() {
+        if (!asyncResolved) {
+            asyncResolved = true;
+            try {
+                beginAsyncSection = Trace.class.getMethod("beginAsyncSection", String.class, int.class);
+                endAsyncSection = Trace.class.getMethod("endAsyncSection", String.class, int.class);
+            } catch (NoSuchMethodException e) {
+                Log.w(TAG, "async trace sections unavailable", e);
+                beginAsyncSection = null;
+                endAsyncSection = null;
+            }
+        }
+        return beginAsyncSection != null;
+    }
+
+    private static boolean invoke(Method method, String name, int cookie) {
+        try {
+            method.invoke(null, name, cookie);
+            return true;
+        } catch (Exception e) {
+            Log.w(TAG, "async trace section failed", e);
+            return false;
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    private static void beginSectionCompat(String name) {
+        Trace.beginSection(name);
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    private static void endSectionCompat() {
+        Trace.endSection();
+    }
+}
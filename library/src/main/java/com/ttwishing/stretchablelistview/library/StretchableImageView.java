@@ -0,0 +1,87 @@
+package com.ttwishing.stretchablelistview.library;
+
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.util.AttributeSet;
+import android.widget.ImageView;
+
+/**
+ * 图片header/footer: 拉伸时不改变自身高度, 而是在绘制时以底部(header)或顶部(footer)为中心放大图片,
+ * 每帧只需重绘, 不需要measure和layout
+ * 配合StretchableListView.setDrawOnlyStretch(true)使用时, 放大的部分填充列表拉伸露出的区域
+ */
+public class StretchableImageView extends ImageView implements StretchableListView.StretchListener {
+
+    private int which = 0;  //0:top 1:bottom
+
+    //当前拉伸高度的绝对值
+    private int stretchOffset;
+
+    public StretchableImageView(Context context) {
+        this(context, null);
+    }
+
+    public StretchableImageView(Context context, AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public StretchableImageView(Context context, AttributeSet attrs, int defStyle) {
+        super(context, attrs, defStyle);
+
+        TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.StretchableImageView);
+        this.which = a.getInteger(R.styleable.StretchableImageView_which, 0);
+        a.recycle();
+    }
+
+    public StretchableImageView(Context context, int which) {
+        super(context);
+        this.which = which;
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        int height = getHeight();
+        if (this.stretchOffset <= 0 || height <= 0) {
+            super.onDraw(canvas);
+            return;
+        }
+        float scale = (float) (height + this.stretchOffset) / height;
+        int saveCount = canvas.save();
+        canvas.scale(scale, scale, getWidth() / 2.0F, this.which == 0 ? height : 0);
+        super.onDraw(canvas);
+        canvas.restoreToCount(saveCount);
+    }
+
+    private void setStretchOffset(int stretchOffset) {
+        if (this.stretchOffset != stretchOffset) {
+            this.stretchOffset = stretchOffset;
+            invalidate();
+        }
+    }
+
+    @Override
+    public void onStretchHeightChanged(StretchableListView observableListView, int lastStretch, int stretch, boolean force) {
+        if (this.which == 0 && (lastStretch < 0 || stretch < 0)) { //header
+            setStretchOffset(Math.max(-stretch, 0));
+        }
+        if (this.which == 1 && (lastStretch > 0 || stretch > 0)) { //bottom
+            setStretchOffset(Math.max(stretch, 0));
+        }
+    }
+
+    @Override
+    public void onStretchReleaseComplete(StretchableListView observableListView, int lastStretch, boolean force) {
+        setStretchOffset(0);
+    }
+
+    @Override
+    public void onStretchStart(StretchableListView observableListView, int lastStretch, int stretch, boolean force) {
+
+    }
+
+    @Override
+    public void onStretchReleaseStart(StretchableListView observableListView, int stretch, boolean force) {
+
+    }
+}
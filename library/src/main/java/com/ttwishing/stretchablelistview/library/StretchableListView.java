@@ -1,70 +1,209 @@
 package com.ttwishing.stretchablelistview.library;
 
-import java.util.HashSet;
-import java.util.Set;
-
 import android.content.Context;
 import android.content.res.Configuration;
+import android.content.res.TypedArray;
 import android.database.DataSetObserver;
+import android.graphics.Canvas;
+import android.os.Build;
+import android.support.v4.view.NestedScrollingChild;
+import android.support.v4.view.NestedScrollingChildHelper;
+import android.support.v4.view.ViewCompat;
 import android.util.AttributeSet;
 import android.util.Log;
-import android.view.GestureDetector;
 import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewConfiguration;
+import android.view.WindowManager;
 import android.widget.AbsListView;
 import android.widget.ListAdapter;
 import android.widget.ListView;
+import android.widget.Scroller;
 
 import com.ttwishing.stretchablelistview.library.util.ListUtils;
 
-public class StretchableListView extends ListView {
+public class StretchableListView extends ListView implements NestedScrollingChild {
 
     private static final String TAG = StretchableListView.class.getSimpleName();
+    private static final boolean DEBUG = false;
+
+    private static final StretchableView[] EMPTY_VIEWS = new StretchableView[0];
+
+    private final StretchStateMachine stateMachine = new StretchStateMachine(new StretchStateMachine.Callback() {
+
+        @Override
+        public void onStretchTouch(float y) {
+            if (resizeAnimation != null && resizeAnimation.isScrolling()) {
+                //没有收到ACTION_DOWN(如被可点击的child消费)时, 由第一个拉伸的ACTION_MOVE接管
+                takeOverRelease(y);
+            }
+        }
+
+        @Override
+        public void onStretchRestore(int lastStretch) {
+            restoreFromStretch(lastStretch);
+        }
+
+        @Override
+        public void onStretchStart(int lastStretch, int stretch) {
+            stretchListeners.onStretchStart(StretchableListView.this, lastStretch, stretch, true);
+            if (stretch > 0) {
+                //footer拉伸, 不必等到阈值
+                dispatchPrefetch();
+            }
+        }
+
+        @Override
+        public void onStretchChanged(int lastStretch, int stretch, boolean isStretchDown) {
+            if (!moveCoalescingEnabled || Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
+                applyStretch(lastStretch, stretch);
+                return;
+            }
+            //同一帧内的多个ACTION_MOVE只记录最新的拉伸高度, 在下一帧统一应用
+            if (!stretchUpdatePending) {
+                stretchUpdatePending = true;
+                pendingLastStretch = lastStretch;
+                ViewCompat.postOnAnimation(StretchableListView.this, applyStretchRunnable);
+            }
+            pendingStretch = stretch;
+        }
+    }, ViewConfiguration.get(getContext()).getScaledTouchSlop());
+
+    //合并ACTION_MOVE, 每帧只应用一次拉伸
+    private boolean moveCoalescingEnabled = true;
+    private boolean stretchUpdatePending;
+    private int pendingLastStretch;
+    private int pendingStretch;
+
+    private final Runnable applyStretchRunnable = new Runnable() {
+
+        @Override
+        public void run() {
+            applyPendingStretch();
+        }
+    };
+
+    private StretchResistance stretchResistance;
 
-    private float lastMotionY = -1.0F;
-    private int lastStretch = 0;
-    private boolean unStretched;
+    //只在绘制时体现拉伸, 不改变header/footer高度
+    private boolean drawOnlyStretch;
+    private int drawnStretch;
+    //应用通过setClipChildren(false)关闭了裁剪; 父类构造时即可能设置, 不能有初始值
+    private boolean clipChildrenDisabled;
 
-    private final Set<StretchableView> headerViewSet = new HashSet<>();
-    private final Set<StretchableView> footerViewSet = new HashSet<>();
+    //每次触摸和布局都要遍历, 用数组避免迭代器; 只在add/remove时复制
+    private StretchableView[] headerViews = EMPTY_VIEWS;
+    private StretchableView[] footerViews = EMPTY_VIEWS;
 
     private AbsListView.OnScrollListener customScrollListener;//用户定义
+    private final StretchMetrics metrics = new StretchMetrics();
+    private final StretchListenerRegistry stretchListeners = new StretchListenerRegistry(metrics);
     private StretchListener stretchListener;//用户定义
+    private OnStretchProgressListener stretchProgressListener;//用户定义
 
-    private DefaultGestureListener gestureListener = new DefaultGestureListener();
-    private GestureDetector gestureDetector = new GestureDetector(getContext().getApplicationContext(), gestureListener);
+    //预加载: 剩余item数(按fling速度折算后)不超过阈值时回调, 每个totalItemCount只回调一次
+    private static final int DEFAULT_PREFETCH_THRESHOLD = 5;
+    private OnPrefetchListener prefetchListener;//用户定义
+    private int prefetchThreshold = DEFAULT_PREFETCH_THRESHOLD;
+    private int lastPrefetchCount = -1;
 
-    private ListVerticalResizeAnimation resizeAnimation = new ListVerticalResizeAnimation();
+    //以下在首次触摸/拉伸时创建, 从未拉伸的列表不需要
+    private ScrollDirectionTracker directionTracker;
+    private TouchPredictor touchPredictor;
+    private boolean touchPredictionEnabled = true;
+    private ListVerticalResizeAnimation resizeAnimation;
+    private long frameBudgetNanos;
 
     private final DataSetObserver dataSetObserver = new DataSetObserver() {
 
         @Override
         public void onChanged() {
-            resetStretch();
+            childrenSpan = -1;
+            itemHeightsInvalid = true;
+            scheduleDataSetChange();
         }
 
         @Override
         public void onInvalidated() {
+            childrenSpan = -1;
+            itemHeightCache.clear();
+            itemHeightsInvalid = true;
+            lastPrefetchCount = -1;
+            scheduleDataSetChange();
+        }
+    };
+
+    //adapter的变化通知合并到下一帧统一处理
+    private boolean dataSetChangePending;
+    private int coalescedDataSetChangeCount;
+
+    private final Runnable dataSetChangeRunnable = new Runnable() {
+
+        @Override
+        public void run() {
+            dataSetChangePending = false;
             resetStretch();
+            for (StretchableView view : headerViews) {
+                view.notifyDataSetChanged(false);
+            }
+            for (StretchableView view : footerViews) {
+                view.notifyDataSetChanged(false);
+            }
         }
     };
 
+    //fling到达边缘时将剩余速度转换为拉伸
+    private static final float ABSORB_VELOCITY_RATIO = 0.05F; //每px/s对应的拉伸高度
+    private static final int MIN_ABSORB_STRETCH = 8;
+    private static final int MIN_ABSORB_DURATION = 80;
+    private static final int MAX_ABSORB_DURATION = 250;
+
+    private static final int INVALID_POINTER = -1;
+    private int activePointerId = INVALID_POINTER;
+
+    private int scrollState = AbsListView.OnScrollListener.SCROLL_STATE_IDLE;
+    private boolean isTrackingFling;
+    private float flingVelocityY; //手势下滑为正
+    private Scroller flingScroller; //与ListView同步的fling, 只用于估算剩余速度, 不参与布局
+
+    //嵌套滑动: 拉伸前先交给父view(如CoordinatorLayout)消费, 只把剩余的距离用于拉伸
+    private NestedScrollingChildHelper nestedScrollingHelper;
+    private final int[] nestedConsumed = new int[2];
+    private final int[] nestedOffsetInWindow = new int[2];
+    //父view移动本view产生的累计偏移, 用于把触点换算到移动前的坐标
+    private int nestedYOffset;
+    private float nestedLastY;
+
+    //首个child的top到最后一个child的bottom, 由所有StretchableView共享; 小于0时需要重新计算
+    private int childrenSpan = -1;
+
+    //已布局过的item高度, 用于估算不可见部分
+    private final ItemHeightCache itemHeightCache = new ItemHeightCache();
+    private boolean itemHeightsInvalid = true;
+
+    //最近一次分发的onScroll参数, 释放动画中可见范围不变时不再分发
+    private int lastScrollFirstVisibleItem = -1;
+    private int lastScrollVisibleItemCount = -1;
+    private int lastScrollTotalItemCount = -1;
+
     private final AbsListView.OnScrollListener mainOnScrollListener = new AbsListView.OnScrollListener() {
 
         @Override
         public void onScrollStateChanged(AbsListView view, int scrollState) {
-            Log.d("MainScroll", "onScrollStateChanged: scrollState = " + scrollState + ", lastStretchHeight = " + lastStretch);
-            if (resizeAnimation.isScrolling()) {
+            if (DEBUG)
+                Log.d("MainScroll", "onScrollStateChanged: scrollState = " + scrollState + ", lastStretchHeight = " + stateMachine.getLastStretch());
+            StretchableListView.this.scrollState = scrollState;
+            if (scrollState != SCROLL_STATE_FLING) {
+                isTrackingFling = false;
+            }
+            if (resizeAnimation != null && resizeAnimation.isScrolling()) {
                 return;
             }
             if (scrollState == SCROLL_STATE_IDLE) {
                 //滑动空闲
                 resetGestureListener();
-            } else if (scrollState == SCROLL_STATE_TOUCH_SCROLL && lastStretch != 0) {
-                restoreFromStretch(lastStretch);
-                lastMotionY = -1.0f;
-                lastStretch = 0;
+            } else if (scrollState == SCROLL_STATE_TOUCH_SCROLL && stateMachine.getLastStretch() != 0) {
+                restoreFromStretch(stateMachine.reset());
             }
 
             if (customScrollListener != null) {
@@ -74,6 +213,21 @@ public class StretchableListView extends ListView {
 
         @Override
         public void onScroll(AbsListView view, int firstVisibleItem, int visibleItemCount, int totalItemCount) {
+            lastScrollFirstVisibleItem = firstVisibleItem;
+            lastScrollVisibleItemCount = visibleItemCount;
+            lastScrollTotalItemCount = totalItemCount;
+            //children已移动, 内容高度延迟到下次使用时再计算
+            childrenSpan = -1;
+            if (isTrackingFling && scrollState == SCROLL_STATE_FLING) {
+                if (flingVelocityY > 0 && isFirstItemVisible()) {
+                    absorbFling(true);
+                } else if (flingVelocityY < 0 && isLastItemVisible()) {
+                    absorbFling(false);
+                }
+            }
+            if (prefetchListener != null) {
+                checkPrefetch(firstVisibleItem, visibleItemCount, totalItemCount);
+            }
             if (customScrollListener != null) {
                 customScrollListener.onScroll(view, firstVisibleItem, visibleItemCount, totalItemCount);
             }
@@ -82,37 +236,284 @@ public class StretchableListView extends ListView {
 
     public StretchableListView(Context context) {
         super(context);
-        init();
+        init(null, 0);
     }
 
     public StretchableListView(Context context, AttributeSet attrs) {
         super(context, attrs);
-        init();
+        init(attrs, 0);
     }
 
     public StretchableListView(Context context, AttributeSet attrs, int defStyle) {
         super(context, attrs, defStyle);
-        init();
+        init(attrs, defStyle);
     }
 
-    private void init() {
+    private void init(AttributeSet attrs, int defStyle) {
         super.setOnScrollListener(mainOnScrollListener);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.GINGERBREAD) {
+            //由拉伸代替系统的边缘效果; fling到达边缘时也不再进入overfling, 由absorbFling接管
+            setOverScrollMode(OVER_SCROLL_NEVER);
+        }
+        //默认开启, xml中的android:nestedScrollingEnabled优先
+        TypedArray a = getContext().obtainStyledAttributes(attrs, R.styleable.StretchableListView, defStyle, 0);
+        setNestedScrollingEnabled(a.getBoolean(R.styleable.StretchableListView_android_nestedScrollingEnabled, true));
+        a.recycle();
     }
 
     @Override
     protected void layoutChildren() {
         super.layoutChildren();
-        for (StretchableView view : headerViewSet) {
+        if (stateMachine.getLastStretch() > 0 && !drawOnlyStretch) {
+            pinLastChildToBottom();
+        }
+        updateChildrenSpan();
+        recordItemHeights();
+        boolean traced = StretchTrace.beginSection(StretchTrace.SECTION_RESET_HEIGHT);
+        for (StretchableView view : headerViews) {
             view.resetHeight();
         }
-        for (StretchableView view : footerViewSet) {
+        for (StretchableView view : footerViews) {
             view.resetHeight();
         }
+        StretchTrace.endSection(traced);
+    }
+
+    /**
+     * 底部拉伸时footer向下变高, 将所有children上移使最后一个child的bottom与列表底部对齐,
+     * 代替setSelectionFromTop, 不会从最后一个位置重新构建children
+     */
+    private void pinLastChildToBottom() {
+        int childCount = getChildCount();
+        if (childCount == 0 || getLastVisiblePosition() != getCount() - 1) {
+            return;
+        }
+        int overflow = getChildAt(childCount - 1).getBottom() - (getHeight() - getListPaddingBottom());
+        if (overflow <= 0) {
+            //底部出现空白时ListView自身会向下修正
+            return;
+        }
+        for (int i = 0; i < childCount; i++) {
+            getChildAt(i).offsetTopAndBottom(-overflow);
+        }
+    }
+
+    private void recordItemHeights() {
+        ListAdapter adapter = getAdapter();
+        if (adapter == null) {
+            return;
+        }
+        int count = getCount();
+        if (this.itemHeightsInvalid || this.itemHeightCache.size() != count) {
+            this.itemHeightsInvalid = false;
+            this.itemHeightCache.reset(count, adapter.getViewTypeCount());
+            putStretchableViewHeights(adapter, count);
+        }
+        int firstVisiblePosition = getFirstVisiblePosition();
+        for (int i = 0, childCount = getChildCount(); i < childCount; i++) {
+            View child = getChildAt(i);
+            int position = firstVisiblePosition + i;
+            if (child instanceof StretchableView) {
+                //StretchableView的高度随拉伸和填充变化, 不计入内容高度, 也不拉低平均高度
+                this.itemHeightCache.putFixed(position, 0);
+            } else {
+                this.itemHeightCache.put(position, adapter.getItemViewType(position), child.getHeight());
+            }
+        }
+    }
+
+    /**
+     * 在布局之前将header/footer中的StretchableView记为0, 未布局过的footer不按平均高度估算
+     */
+    private void putStretchableViewHeights(ListAdapter adapter, int count) {
+        if (headerViews.length == 0 && footerViews.length == 0) {
+            return;
+        }
+        //HeaderViewListAdapter对header/footer位置直接返回添加的view, 不创建新的view
+        for (int i = 0, headerCount = getHeaderViewsCount(); i < headerCount && i < count; i++) {
+            if (adapter.getView(i, null, this) instanceof StretchableView) {
+                this.itemHeightCache.putFixed(i, 0);
+            }
+        }
+        for (int i = Math.max(0, count - getFooterViewsCount()); i < count; i++) {
+            if (adapter.getView(i, null, this) instanceof StretchableView) {
+                this.itemHeightCache.putFixed(i, 0);
+            }
+        }
+    }
+
+    /**
+     * 估算内容顶部到列表可见区域顶部的距离, 包括未布局过的item
+     *
+     * @return 已到达顶部时为0
+     */
+    public int getEstimatedDistanceToTop() {
+        if (getChildCount() == 0) {
+            return 0;
+        }
+        long distance = this.itemHeightCache.getEstimatedOffset(getFirstVisiblePosition()) + getListPaddingTop() - getChildAt(0).getTop();
+        return (int) Math.max(0, Math.min(distance, Integer.MAX_VALUE));
+    }
+
+    /**
+     * 估算列表可见区域底部到内容底部的距离, 包括未布局过的item
+     *
+     * @return 已到达底部时为0
+     */
+    public int getEstimatedDistanceToBottom() {
+        int childCount = getChildCount();
+        if (childCount == 0) {
+            return 0;
+        }
+        long distance = this.itemHeightCache.getEstimatedTotal() - this.itemHeightCache.getEstimatedOffset(getLastVisiblePosition() + 1)
+                + getChildAt(childCount - 1).getBottom() - (getHeight() - getListPaddingBottom());
+        return (int) Math.max(0, Math.min(distance, Integer.MAX_VALUE));
+    }
+
+    /**
+     * 估算全部item的高度之和, 不包括StretchableView
+     */
+    public int getEstimatedContentHeight() {
+        return (int) Math.min(this.itemHeightCache.getEstimatedTotal(), Integer.MAX_VALUE);
+    }
+
+    private void updateChildrenSpan() {
+        int count = getChildCount();
+        if (count > 0) {
+            this.childrenSpan = getChildAt(count - 1).getBottom() - getChildAt(0).getTop();
+        } else {
+            this.childrenSpan = 0;
+        }
+    }
+
+    /**
+     * 计算ListView的内容高度, 除view的高度外, 与StretchableView.calListViewContentHeight结果一致,
+     * 但children的范围只在布局变化后计算一次
+     *
+     * @param view 计算填充高度的StretchableView
+     * @return 内容高度
+     */
+    int getContentHeight(StretchableView view) {
+        if (getChildCount() < getCount() && this.itemHeightCache.size() == getCount()) {
+            //只有部分item可见, 由缓存估算全部内容的高度
+            return getEstimatedContentHeight();
+        }
+        if (this.childrenSpan < 0) {
+            updateChildrenSpan();
+        }
+        //view是否可见
+        if (view.getParent() == this) {
+            return this.childrenSpan - view.getHeight();
+        }
+        return this.childrenSpan;
+    }
+
+    private void scheduleDataSetChange() {
+        if (dataSetChangePending) {
+            coalescedDataSetChangeCount++;
+            return;
+        }
+        dataSetChangePending = true;
+        ViewCompat.postOnAnimation(this, dataSetChangeRunnable);
+    }
+
+    /**
+     * @return 被合并(未单独处理)的adapter变化通知数
+     */
+    public int getCoalescedDataSetChangeCount() {
+        return this.coalescedDataSetChangeCount;
+    }
+
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+        if (drawOnlyStretch && drawnStretch != 0) {
+            //顶部拉伸时内容下移, 底部拉伸时内容上移
+            int saveCount = canvas.save();
+            canvas.translate(0, -drawnStretch);
+            super.dispatchDraw(canvas);
+            canvas.restoreToCount(saveCount);
+        } else {
+            super.dispatchDraw(canvas);
+        }
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        //按屏幕刷新率确定释放动画的帧预算
+        WindowManager windowManager = (WindowManager) getContext().getSystemService(Context.WINDOW_SERVICE);
+        if (windowManager != null) {
+            float refreshRate = windowManager.getDefaultDisplay().getRefreshRate();
+            if (refreshRate > 0) {
+                this.frameBudgetNanos = (long) (1000000000L / refreshRate);
+                if (resizeAnimation != null) {
+                    resizeAnimation.setFrameBudgetNanos(this.frameBudgetNanos);
+                }
+            }
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        getNestedScrollingHelper().onDetachedFromWindow();
+        removeCallbacks(applyStretchRunnable);
+        applyPendingStretch();
+    }
+
+    /**
+     * 获取拉伸开销统计的快照
+     *
+     * @param outMetrics 用于接收统计, 可复用以避免分配
+     * @return outMetrics
+     */
+    public StretchMetrics getStretchMetrics(StretchMetrics outMetrics) {
+        outMetrics.set(this.metrics);
+        return outMetrics;
+    }
+
+    public StretchMetrics getStretchMetrics() {
+        return getStretchMetrics(new StretchMetrics());
+    }
+
+    public void resetStretchMetrics() {
+        this.metrics.reset();
+    }
+
+    //StretchableView的高度变化引起了一次布局
+    void onStretchLayoutRequested() {
+        this.metrics.layoutPassCount++;
     }
 
     @Override
     protected void onSizeChanged(int w, int h, int oldw, int oldh) {
         super.onSizeChanged(w, h, oldw, oldh);
+        if (h != oldh) {
+            updateResistanceTable();
+        }
+    }
+
+    /**
+     * 设置拉伸阻尼曲线, 如StretchResistance.rubberBand(0.55F)
+     *
+     * @param resistance null为默认的拖动距离的一半
+     */
+    public void setStretchResistance(StretchResistance resistance) {
+        this.stretchResistance = resistance;
+        updateResistanceTable();
+    }
+
+    public StretchResistance getStretchResistance() {
+        return this.stretchResistance;
+    }
+
+    //按当前高度预先计算查找表
+    private void updateResistanceTable() {
+        if (this.stretchResistance == null) {
+            stateMachine.setResistanceTable(null);
+        } else if (getHeight() > 0) {
+            stateMachine.setResistanceTable(this.stretchResistance.buildTable(getHeight()));
+        }
     }
 
     @Override
@@ -121,26 +522,168 @@ public class StretchableListView extends ListView {
         super.setOnScrollListener(mainOnScrollListener);
     }
 
+    /**
+     * 设置预加载监听, 在滑动到底部之前请求下一页
+     *
+     * @param listener
+     * @param threshold 剩余的item数(不含footer)不超过该值时回调; fling时按剩余的fling距离提前
+     */
+    public void setOnPrefetchListener(OnPrefetchListener listener, int threshold) {
+        this.prefetchListener = listener;
+        this.prefetchThreshold = threshold;
+        this.lastPrefetchCount = -1;
+    }
+
+    public void setOnPrefetchListener(OnPrefetchListener listener) {
+        setOnPrefetchListener(listener, DEFAULT_PREFETCH_THRESHOLD);
+    }
+
+    /**
+     * 允许在当前totalItemCount下再次回调预加载, 如上一次请求失败需要重试
+     */
+    public void resetPrefetch() {
+        this.lastPrefetchCount = -1;
+    }
+
+    private void checkPrefetch(int firstVisibleItem, int visibleItemCount, int totalItemCount) {
+        if (totalItemCount == this.lastPrefetchCount || visibleItemCount == 0) {
+            return;
+        }
+        int remaining = totalItemCount - getFooterViewsCount() - (firstVisibleItem + visibleItemCount);
+        if (remaining - getFlingItemsAhead() <= this.prefetchThreshold) {
+            dispatchPrefetch();
+        }
+    }
+
+    //向底部fling时, 剩余的fling距离折算成的item数
+    private int getFlingItemsAhead() {
+        if (!this.isTrackingFling || this.flingVelocityY >= 0 || !this.flingScroller.computeScrollOffset()) {
+            return 0;
+        }
+        int averageHeight = this.itemHeightCache.getAverageHeight();
+        if (averageHeight <= 0) {
+            return 0;
+        }
+        int distance = Math.abs(this.flingScroller.getFinalY() - this.flingScroller.getCurrY());
+        return distance / averageHeight;
+    }
+
+    private void dispatchPrefetch() {
+        int totalItemCount = getCount();
+        if (this.prefetchListener == null || totalItemCount == this.lastPrefetchCount) {
+            return;
+        }
+        this.lastPrefetchCount = totalItemCount;
+        this.prefetchListener.onPrefetch(this, totalItemCount);
+    }
+
+    /**
+     * 设置拉伸进度监听, 拖动和释放动画的每帧回调, 代替依赖onScroll的逐帧处理
+     *
+     * @param listener
+     */
+    public void setOnStretchProgressListener(OnStretchProgressListener listener) {
+        this.stretchProgressListener = listener;
+    }
+
     public void setStretchListener(StretchListener listener) {
+        stretchListeners.remove(this.stretchListener);
         this.stretchListener = listener;
+        stretchListeners.add(listener);
     }
 
-    @Override
-    public void setAdapter(ListAdapter adapter) {
-        for (StretchableView view : headerViewSet) {
-            view.setAdapter(adapter);
+    /**
+     * 添加拉伸监听, 通过addHeaderView/addFooterView添加的StretchableView, StretchableImageView等会自动注册
+     *
+     * @param listener
+     * @return 是否添加成功, 已注册过时返回false
+     */
+    public boolean addStretchListener(StretchListener listener) {
+        return stretchListeners.add(listener);
+    }
+
+    public boolean removeStretchListener(StretchListener listener) {
+        return stretchListeners.remove(listener);
+    }
+
+    /**
+     * 是否将同一帧内的多个ACTION_MOVE合并, 每帧只回调一次onStretchHeightChanged, 默认开启
+     * 关闭后每个ACTION_MOVE立即应用, 如测试中view未attach时
+     *
+     * @param moveCoalescingEnabled
+     */
+    public void setMoveCoalescingEnabled(boolean moveCoalescingEnabled) {
+        this.moveCoalescingEnabled = moveCoalescingEnabled;
+        if (!moveCoalescingEnabled) {
+            applyPendingStretch();
         }
+    }
+
+    public boolean isMoveCoalescingEnabled() {
+        return this.moveCoalescingEnabled;
+    }
+
+    /**
+     * 是否根据触摸采样的速度预测手指位置, 使拉伸更贴近手指, 默认开启
+     *
+     * @param touchPredictionEnabled
+     */
+    public void setTouchPredictionEnabled(boolean touchPredictionEnabled) {
+        this.touchPredictionEnabled = touchPredictionEnabled;
+    }
+
+    public boolean isTouchPredictionEnabled() {
+        return this.touchPredictionEnabled;
+    }
+
+    /**
+     * 拉伸过程只通过绘制时的canvas平移体现, StretchableView的高度在拉伸还原完毕后才提交,
+     * 每帧的代价为一次重绘而不是measure+layout
+     *
+     * @param drawOnlyStretch 是否启用
+     */
+    public void setDrawOnlyStretch(boolean drawOnlyStretch) {
+        if (this.drawOnlyStretch == drawOnlyStretch) {
+            return;
+        }
+        this.drawOnlyStretch = drawOnlyStretch;
+        //允许StretchableImageView等header绘制到拉伸露出的区域, 关闭时恢复应用的设置
+        super.setClipChildren(!drawOnlyStretch && !clipChildrenDisabled);
+        if (this.drawnStretch != 0) {
+            this.drawnStretch = 0;
+            invalidate();
+        }
+    }
+
+    public boolean isDrawOnlyStretch() {
+        return this.drawOnlyStretch;
+    }
+
+    @Override
+    public void setClipChildren(boolean clipChildren) {
+        this.clipChildrenDisabled = !clipChildren;
+        super.setClipChildren(clipChildren && !drawOnlyStretch);
+    }
 
-        for (StretchableView view : footerViewSet) {
-            view.setAdapter(adapter);
+    private void updateDrawnStretch(int stretch) {
+        if (drawOnlyStretch && drawnStretch != stretch) {
+            drawnStretch = stretch;
+            invalidate();
         }
+    }
 
+    @Override
+    public void setAdapter(ListAdapter adapter) {
         ListAdapter listAdapter = getAdapter();
         if (listAdapter != null)
             listAdapter.unregisterDataSetObserver(dataSetObserver);
 
-        if (listAdapter != null)
-            listAdapter.registerDataSetObserver(dataSetObserver);
+        if (adapter != null)
+            adapter.registerDataSetObserver(dataSetObserver);
+        childrenSpan = -1;
+        itemHeightCache.clear();
+        itemHeightsInvalid = true;
+        lastPrefetchCount = -1;
         super.setAdapter(adapter);
 
     }
@@ -153,125 +696,304 @@ public class StretchableListView extends ListView {
 
     @Override
     public boolean onTouchEvent(MotionEvent ev) {
-        int action = ev.getAction();
+        int action = ev.getActionMasked();
 
         if (action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL) {
             resetGestureListener();
         }
 
-        this.gestureDetector.onTouchEvent(ev);
+        trackDirection(ev, action);
 
-        boolean isStretching = false; //包括拉伸和拉伸后的还原
+        boolean isStretching;
+        boolean traced = StretchTrace.beginSection(StretchTrace.SECTION_TOUCH);
+        try {
+            isStretching = handleStretchTouch(ev, action);
+        } finally {
+            StretchTrace.endSection(traced);
+        }
+        boolean handled;
+        if (isStretching) {
+            handled = true;
+        } else if (action == MotionEvent.ACTION_UP) {
+            handled = dispatchTouchUp(ev);
+        } else {
+            handled = super.onTouchEvent(ev);
+        }
+        if (action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL) {
+            //AbsListView在ACTION_UP中分发嵌套fling, 在super之后再结束嵌套滑动
+            stopNestedScroll();
+        }
+        return handled;
+    }
+
+    //由ListView处理ACTION_UP, 并跟踪其fling
+    private boolean dispatchTouchUp(MotionEvent ev) {
+        float velocityY = stateMachine.getFlingVelocityY();
+        if (velocityY == 0 || Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            //5.0以上由AbsListView自己分发嵌套fling
+            boolean handled = super.onTouchEvent(ev);
+            startFlingTracking(velocityY);
+            return handled;
+        }
+        //5.0以下在ListView开始fling之前分发, 父view消费时ListView不再fling
+        if (dispatchNestedPreFling(0, -velocityY)) {
+            MotionEvent cancel = MotionEvent.obtain(ev);
+            cancel.setAction(MotionEvent.ACTION_CANCEL);
+            boolean handled = super.onTouchEvent(cancel);
+            cancel.recycle();
+            startFlingTracking(0);
+            return handled;
+        }
+        boolean handled = super.onTouchEvent(ev);
+        dispatchNestedFling(0, -velocityY, true);
+        startFlingTracking(velocityY);
+        return handled;
+    }
+
+    /**
+     * 处理拉伸相关的触摸事件
+     *
+     * @return 是否由拉伸消费, 包括拉伸和拉伸后的还原
+     */
+    private boolean handleStretchTouch(MotionEvent ev, int action) {
+        boolean isStretching = false;
         if (action == MotionEvent.ACTION_DOWN) {
-            for (StretchableView view : headerViewSet) {
+            this.activePointerId = ev.getPointerId(0);
+            this.nestedYOffset = 0;
+            this.nestedLastY = ev.getY();
+            this.touchPredictor.reset(ev.getY(), ev.getEventTime());
+            startNestedScroll(ViewCompat.SCROLL_AXIS_VERTICAL);
+            if (resizeAnimation != null && resizeAnimation.isScrolling()) {
+                //释放动画中重新按下
+                takeOverRelease(ev.getY());
+            }
+            for (StretchableView view : headerViews) {
                 view.requestLayout();
             }
-            for (StretchableView view : footerViewSet) {
+            for (StretchableView view : footerViews) {
                 view.requestLayout();
             }
-        } else if (action == MotionEvent.ACTION_MOVE && ev.getPointerCount() == 1) {
-            //是否顶部stretch拉伸或还原
-            boolean isStretchUp = false;
-            if ((getFirstVisiblePosition() == 0 && this.lastStretch < 0) || (isFirstItemVisible() && gestureListener.getScrollDirection() == ListUtils.ScrollDirection.UP)) {
-                isStretchUp = true;
+        } else if (action == MotionEvent.ACTION_MOVE) {
+            boolean atFirstPosition = getFirstVisiblePosition() == 0;
+            boolean firstItemVisible = isFirstItemVisible();
+            boolean atLastPosition = getLastVisiblePosition() == getCount() - 1;
+            boolean lastItemVisible = isLastItemVisible();
+            int index = getActivePointerIndex(ev);
+            float y = ev.getY(index) + this.nestedYOffset;
+            float predictedY = y;
+            if (this.touchPredictionEnabled) {
+                //批量的历史采样只用于估计速度, 不增加布局次数
+                for (int i = 0, size = ev.getHistorySize(); i < size; i++) {
+                    this.touchPredictor.addSample(ev.getHistoricalY(index, i) + this.nestedYOffset, ev.getHistoricalEventTime(i));
+                }
+                this.touchPredictor.addSample(y, ev.getEventTime());
+                predictedY = this.touchPredictor.getPredictedY();
+            }
+            if (stateMachine.willStretch(atFirstPosition, firstItemVisible, atLastPosition, lastItemVisible)) {
+                //非拉伸时由super处理嵌套滑动
+                dispatchNestedStretch((int) (this.nestedLastY - y));
+            }
+            this.nestedLastY = y;
+            isStretching = stateMachine.onMove(y, predictedY, atFirstPosition, firstItemVisible, atLastPosition, lastItemVisible);
+        } else if (action == MotionEvent.ACTION_POINTER_DOWN) {
+            //新按下的手指接管拉伸
+            int index = ev.getActionIndex();
+            switchActivePointer(ev, getActivePointerIndex(ev), index);
+            isStretching = stateMachine.getLastStretch() != 0;
+        } else if (action == MotionEvent.ACTION_POINTER_UP) {
+            //抬起的是当前手指时, 由剩下的手指接管
+            int index = ev.getActionIndex();
+            if (ev.getPointerId(index) == this.activePointerId) {
+                switchActivePointer(ev, index, index == 0 ? 1 : 0);
+            }
+            isStretching = stateMachine.getLastStretch() != 0;
+        } else if (action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL) {
+            //将拉伸还原
+            this.activePointerId = INVALID_POINTER;
+            int stretch = stateMachine.reset();
+            if (stretch != 0) {
+                releaseStretch(stretch);
+                isStretching = true;
+            } else {
+                isStretching = false;
             }
+        }
+        return isStretching;
+    }
 
-            //是否底部stretch拉伸或还原
-            boolean isStretchDown = false;
-            if ((getLastVisiblePosition() == getCount() - 1 && this.lastStretch > 0) || (isLastItemVisible() && gestureListener.getScrollDirection() == ListUtils.ScrollDirection.DOWN)) {
-                isStretchDown = true;
+    //确定滑动方向与fling速度
+    private void trackDirection(MotionEvent ev, int action) {
+        if (this.directionTracker == null) {
+            ViewConfiguration configuration = ViewConfiguration.get(getContext());
+            this.directionTracker = new ScrollDirectionTracker(stateMachine, configuration.getScaledTouchSlop(),
+                    configuration.getScaledMinimumFlingVelocity(), configuration.getScaledMaximumFlingVelocity());
+            this.touchPredictor = new TouchPredictor(configuration.getScaledTouchSlop());
+        }
+        if (action == MotionEvent.ACTION_DOWN) {
+            this.directionTracker.onDown(ev.getX(), ev.getY(), ev.getEventTime());
+        } else if (action == MotionEvent.ACTION_MOVE) {
+            int index = getActivePointerIndex(ev);
+            for (int i = 0, size = ev.getHistorySize(); i < size; i++) {
+                this.directionTracker.addSample(ev.getHistoricalX(index, i), ev.getHistoricalY(index, i), ev.getHistoricalEventTime(i));
             }
+            this.directionTracker.onMove(ev.getX(index), ev.getY(index), ev.getEventTime());
+        } else if (action == MotionEvent.ACTION_UP) {
+            int index = getActivePointerIndex(ev);
+            this.directionTracker.onUp(ev.getX(index), ev.getY(index), ev.getEventTime());
+        } else if (action == MotionEvent.ACTION_CANCEL) {
+            this.directionTracker.onCancel();
+        }
+    }
 
-            Log.d("onTouchEvent", "isStretchUp = " + isStretchUp+", "+isStretchDown);
+    private int getActivePointerIndex(MotionEvent ev) {
+        int index = ev.findPointerIndex(this.activePointerId);
+        return index < 0 ? 0 : index;
+    }
 
-            if (isStretchUp || isStretchDown) {
-                this.resizeAnimation.cancel();
+    //切换当前手指, 拉伸高度保持不变
+    private void switchActivePointer(MotionEvent ev, int fromIndex, int toIndex) {
+        float dy = ev.getY(toIndex) - ev.getY(fromIndex);
+        stateMachine.offsetMotionY(dy);
+        this.nestedLastY += dy;
+        this.activePointerId = ev.getPointerId(toIndex);
+        if (this.directionTracker != null) {
+            this.directionTracker.onPointerChanged(ev.getX(toIndex), ev.getY(toIndex), ev.getEventTime());
+            this.touchPredictor.reset(ev.getY(toIndex) + this.nestedYOffset, ev.getEventTime());
+        }
+    }
 
-                //是否是滑动的起始
-                boolean firstStretch = this.lastMotionY < 0;
+    /**
+     * 拉伸前先分发嵌套滑动, 父view消费的部分从拉伸中扣除
+     *
+     * @param dy 本次移动的距离, 手势上滑为正
+     */
+    private void dispatchNestedStretch(int dy) {
+        if (dy == 0 || !hasNestedScrollingParent()) {
+            return;
+        }
+        int lastStretch = stateMachine.getLastStretch();
+        if ((lastStretch < 0 && dy > 0) || (lastStretch > 0 && dy < 0)) {
+            //拉伸的还原优先于父view
+            return;
+        }
+        if (dispatchNestedPreScroll(0, dy, this.nestedConsumed, this.nestedOffsetInWindow)) {
+            stateMachine.offsetMotionY(-this.nestedConsumed[1]);
+            this.nestedYOffset += this.nestedOffsetInWindow[1];
+            dy -= this.nestedConsumed[1];
+        }
+        if (dy != 0 && dispatchNestedScroll(0, 0, 0, dy, this.nestedOffsetInWindow)) {
+            //父view消费的距离体现为本view在窗口中的位移
+            stateMachine.offsetMotionY(this.nestedOffsetInWindow[1]);
+            this.nestedYOffset += this.nestedOffsetInWindow[1];
+        }
+    }
 
-                int oldStretchHeight = 0;
-                if (!firstStretch) {
-                    oldStretchHeight = this.lastStretch;
-                }
+    private NestedScrollingChildHelper getNestedScrollingHelper() {
+        //View的构造方法中可能已调用setNestedScrollingEnabled
+        if (this.nestedScrollingHelper == null) {
+            this.nestedScrollingHelper = new NestedScrollingChildHelper(this);
+        }
+        return this.nestedScrollingHelper;
+    }
 
-                //确定滑动高度
-                int stretchHeight = 0;
-                if (!firstStretch) {
-                    stretchHeight = (int) (this.lastMotionY - ev.getY()) / 2;
-                }
+    @Override
+    public void setNestedScrollingEnabled(boolean enabled) {
+        getNestedScrollingHelper().setNestedScrollingEnabled(enabled);
+    }
 
-                boolean unStretched = (oldStretchHeight < 0 && stretchHeight >= 0) || (oldStretchHeight > 0 && stretchHeight <= 0);
-                if (firstStretch || unStretched) {
-                    this.unStretched = true;
-                }
+    @Override
+    public boolean isNestedScrollingEnabled() {
+        return getNestedScrollingHelper().isNestedScrollingEnabled();
+    }
 
-                if (firstStretch) {
-                    this.lastMotionY = ev.getY();
-                }
-                if (unStretched) {
-                    restoreFromStretch(oldStretchHeight);
-                    if (stretchHeight < 0 && isStretchUp) {
-                        oldStretchHeight = -1;
-                        isStretching = true;
-                    } else if (stretchHeight > 0 && isStretchDown) {
-                        oldStretchHeight = 1;
-                        isStretching = true;
-                    } else {
-                        isStretching = true;
-                        stretchHeight = 0;
-                        oldStretchHeight = 0;
-                    }
-                } else if (oldStretchHeight != stretchHeight) {
-                    isStretching = true;
-                } else {
-                    isStretching = false;
-                }
+    @Override
+    public boolean startNestedScroll(int axes) {
+        return getNestedScrollingHelper().startNestedScroll(axes);
+    }
 
-                Log.d("onTouchEvent", "isStretching = " + isStretching);
-
-                this.lastStretch = stretchHeight;
-                if (isStretching) {
-                    if (this.unStretched) {
-                        this.unStretched = false;
-                        if (this.stretchListener != null) {
-                            this.stretchListener.onStretchStart(this, oldStretchHeight, stretchHeight, true);
-                        }
-                    }
-
-                    if (this.stretchListener != null) {
-                        this.stretchListener.onStretchHeightChanged(this, oldStretchHeight, stretchHeight, true);
-                    }
-                    if (isStretchDown) {
-                        setSelectionFromTop(-1 + getCount(), -getHeight(), false);
-                    }
-                }
-                isStretching = true;
-            } else {
-                if (this.lastStretch != 0) {
-                    isStretching = true;
-                } else {
-                    isStretching = false;
-                }
-                this.lastStretch = 0;
-                this.lastMotionY = -1;
-            }
-        } else {
-            //将拉伸还原
-            if (this.lastStretch != 0) {
-                releaseStretch(this.lastStretch);
-                isStretching = true;
-            } else {
-                isStretching = false;
-            }
-            this.lastStretch = 0;
-            this.lastMotionY = -1;
+    @Override
+    public void stopNestedScroll() {
+        getNestedScrollingHelper().stopNestedScroll();
+    }
+
+    @Override
+    public boolean hasNestedScrollingParent() {
+        return getNestedScrollingHelper().hasNestedScrollingParent();
+    }
+
+    @Override
+    public boolean dispatchNestedScroll(int dxConsumed, int dyConsumed, int dxUnconsumed, int dyUnconsumed, int[] offsetInWindow) {
+        return getNestedScrollingHelper().dispatchNestedScroll(dxConsumed, dyConsumed, dxUnconsumed, dyUnconsumed, offsetInWindow);
+    }
+
+    @Override
+    public boolean dispatchNestedPreScroll(int dx, int dy, int[] consumed, int[] offsetInWindow) {
+        return getNestedScrollingHelper().dispatchNestedPreScroll(dx, dy, consumed, offsetInWindow);
+    }
+
+    @Override
+    public boolean dispatchNestedFling(float velocityX, float velocityY, boolean consumed) {
+        return getNestedScrollingHelper().dispatchNestedFling(velocityX, velocityY, consumed);
+    }
+
+    @Override
+    public boolean dispatchNestedPreFling(float velocityX, float velocityY) {
+        return getNestedScrollingHelper().dispatchNestedPreFling(velocityX, velocityY);
+    }
+
+    private void startFlingTracking(float velocityY) {
+        if (velocityY == 0) {
+            this.isTrackingFling = false;
+            return;
         }
-        if (isStretching) {
-            return true;
-        } else {
-            return super.onTouchEvent(ev);
+        if (this.flingScroller == null) {
+            this.flingScroller = new Scroller(getContext());
+        }
+        this.flingVelocityY = velocityY;
+        this.flingScroller.fling(0, 0, 0, (int) velocityY, 0, 0, Integer.MIN_VALUE, Integer.MAX_VALUE);
+        this.isTrackingFling = true;
+    }
+
+    //估算fling当前剩余的速度
+    private float getRemainingFlingVelocity() {
+        Scroller scroller = this.flingScroller;
+        if (!scroller.computeScrollOffset()) {
+            return 0;
         }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH) {
+            return scroller.getCurrVelocity();
+        }
+        int duration = scroller.getDuration();
+        if (duration <= 0) {
+            return 0;
+        }
+        return Math.abs(flingVelocityY) * Math.max(0, 1.0F - (float) scroller.timePassed() / duration);
+    }
+
+    //fling到达顶部/底部, 将剩余速度转换为拉伸后释放, 类似EdgeEffect.onAbsorb
+    private void absorbFling(boolean top) {
+        this.isTrackingFling = false;
+        float velocity = getRemainingFlingVelocity();
+        this.flingScroller.abortAnimation();
+
+        int stretch = (int) Math.min(velocity * ABSORB_VELOCITY_RATIO, getHeight() / 4);
+        if (stretch < MIN_ABSORB_STRETCH || stateMachine.getLastStretch() != 0 || (resizeAnimation != null && resizeAnimation.isScrolling())) {
+            return;
+        }
+        //停止ListView自身的fling; OVER_SCROLL_NEVER下到达边缘时不会再overfling和绘制EdgeEffect
+        smoothScrollBy(0, 0);
+
+        //减速到0所需的时间
+        int duration = (int) (2000.0F * stretch / velocity);
+        duration = Math.max(MIN_ABSORB_DURATION, Math.min(duration, MAX_ABSORB_DURATION));
+
+        int sign = top ? -1 : 1;
+        stateMachine.setLastStretch(sign);
+        stretchListeners.onStretchStart(this, sign, sign, true);
+        if (!top) {
+            dispatchPrefetch();
+        }
+        getResizeAnimation().absorb(sign * stretch, duration);
     }
 
     public void setSelectionFromTop(int position, int y, boolean bool) {
@@ -298,9 +1020,9 @@ public class StretchableListView extends ListView {
         }
 
         if ((position * 100 + y / 100.0F) < (firstVisiblePosition * 100 + 100.0F * top / height)) {
-            gestureListener.setScrollDirection(ListUtils.ScrollDirection.UP);
+            stateMachine.setScrollDirection(ListUtils.ScrollDirection.UP);
         } else {
-            gestureListener.setScrollDirection(ListUtils.ScrollDirection.DOWN);
+            stateMachine.setScrollDirection(ListUtils.ScrollDirection.DOWN);
         }
         super.setSelectionFromTop(position, y);
     }
@@ -308,7 +1030,10 @@ public class StretchableListView extends ListView {
     @Override
     public void addHeaderView(View v) {
         if (v instanceof StretchableView) {
-            headerViewSet.add((StretchableView) v);
+            headerViews = addToArray(headerViews, (StretchableView) v);
+        }
+        if (v instanceof StretchListener) {
+            stretchListeners.add((StretchListener) v);
         }
         super.addHeaderView(v);
     }
@@ -317,17 +1042,22 @@ public class StretchableListView extends ListView {
     public boolean removeHeaderView(View v) {
         boolean result = super.removeHeaderView(v);
         if (result && v instanceof StretchableView) {
-            StretchableView stretchableView = (StretchableView) v;
-            stretchableView.setAdapter(null);
-            headerViewSet.remove(stretchableView);
+            headerViews = removeFromArray(headerViews, (StretchableView) v);
+        }
+        if (result && v instanceof StretchListener) {
+            stretchListeners.remove((StretchListener) v);
         }
         return result;
     }
 
     @Override
     public void addFooterView(View v) {
-        if (v instanceof StretchableView)
-            footerViewSet.add((StretchableView) v);
+        if (v instanceof StretchableView) {
+            footerViews = addToArray(footerViews, (StretchableView) v);
+        }
+        if (v instanceof StretchListener) {
+            stretchListeners.add((StretchListener) v);
+        }
         super.addFooterView(v);
     }
 
@@ -335,9 +1065,10 @@ public class StretchableListView extends ListView {
     public boolean removeFooterView(View v) {
         boolean result = super.removeFooterView(v);
         if (result && v instanceof StretchableView) {
-            StretchableView stretchableView = (StretchableView) v;
-            stretchableView.setAdapter(null);
-            footerViewSet.remove(stretchableView);
+            footerViews = removeFromArray(footerViews, (StretchableView) v);
+        }
+        if (result && v instanceof StretchListener) {
+            stretchListeners.remove((StretchListener) v);
         }
         return result;
     }
@@ -367,36 +1098,142 @@ public class StretchableListView extends ListView {
         return getLastVisiblePosition() == getCount() - 1 && lastBottom <= lastPaddingBottom;
     }
 
+    private void applyStretch(int lastStretch, int stretch) {
+        updateDrawnStretch(stretch);
+        //底部拉伸时footer变高, 在layoutChildren中平移children保持底部对齐
+        stretchListeners.onStretchHeightChanged(this, lastStretch, stretch, true);
+        dispatchStretchProgress(stretch);
+    }
+
+    private void dispatchStretchProgress(int stretch) {
+        if (this.stretchProgressListener != null) {
+            int height = getHeight();
+            this.stretchProgressListener.onStretchProgress(this, stretch, height > 0 ? (float) stretch / height : 0);
+        }
+    }
+
+    //立即应用尚未应用的拉伸, 保证回调顺序
+    private void applyPendingStretch() {
+        if (this.stretchUpdatePending) {
+            this.stretchUpdatePending = false;
+            applyStretch(this.pendingLastStretch, this.pendingStretch);
+        }
+    }
+
     //从当前位置释放
     private void releaseStretch(int stretch) {
-        if (stretchListener != null)
-            stretchListener.onStretchReleaseStart(this, stretch, true);
+        applyPendingStretch();
+        stretchListeners.onStretchReleaseStart(this, stretch, true);
 
         if (stretch > 0) {
-            gestureListener.setScrollDirection(ListUtils.ScrollDirection.UP);
+            stateMachine.setScrollDirection(ListUtils.ScrollDirection.UP);
+        } else {
+            stateMachine.setScrollDirection(ListUtils.ScrollDirection.DOWN);
+        }
+        ListVerticalResizeAnimation animation = getResizeAnimation();
+        if (animation.isScrolling()) {
+            animation.retarget(0);
         } else {
-            gestureListener.setScrollDirection(ListUtils.ScrollDirection.DOWN);
+            animation.configScroll(stretch, 0, 250);
+            animation.start();
+        }
+    }
+
+    ListVerticalResizeAnimation getResizeAnimation() {
+        if (this.resizeAnimation == null) {
+            this.resizeAnimation = new ListVerticalResizeAnimation();
+            if (this.frameBudgetNanos > 0) {
+                this.resizeAnimation.setFrameBudgetNanos(this.frameBudgetNanos);
+            }
+        }
+        return this.resizeAnimation;
+    }
+
+    /**
+     * 设置拉伸释放动画的引擎, 默认为ScrollerAnimationEngine
+     *
+     * @param engine 如SpringAnimationEngine
+     */
+    public void setReleaseAnimationEngine(AnimationEngine engine) {
+        getResizeAnimation().setAnimationEngine(engine);
+    }
+
+    //停止释放动画, 从当前高度继续拉伸
+    private void takeOverRelease(float y) {
+        int stretch = resizeAnimation.interrupt();
+        if (stretch != 0) {
+            stateMachine.grab(y, stretch);
+        } else {
+            //已回到原点但最后一帧尚未执行, 按动画结束处理, 保证onStretchReleaseComplete
+            resizeAnimation.finish();
         }
-        this.resizeAnimation.configScroll(stretch, 0, 250);
-        this.resizeAnimation.start();
     }
 
     private void resetStretch() {
-        if (this.lastStretch != 0)
-            restoreFromStretch(this.lastStretch);
-        this.lastStretch = 0;
-        this.lastMotionY = -1.0F;
+        int stretch = stateMachine.reset();
+        if (stretch != 0)
+            restoreFromStretch(stretch);
     }
 
     private void restoreFromStretch(int lastStretch) {
-        if (this.stretchListener != null) {
-            this.stretchListener.onStretchHeightChanged(this, lastStretch, 0, true);
-            this.stretchListener.onStretchReleaseComplete(this, lastStretch, true);
-        }
+        applyPendingStretch();
+        updateDrawnStretch(0);
+        this.stretchListeners.onStretchHeightChanged(this, lastStretch, 0, true);
+        this.stretchListeners.onStretchReleaseComplete(this, lastStretch, true);
     }
 
     public void resetGestureListener() {
-        gestureListener.reset();
+        stateMachine.resetScroll();
+    }
+
+    private static StretchableView[] addToArray(StretchableView[] views, StretchableView view) {
+        for (StretchableView v : views) {
+            if (v == view) {
+                return views;
+            }
+        }
+        StretchableView[] newViews = new StretchableView[views.length + 1];
+        System.arraycopy(views, 0, newViews, 0, views.length);
+        newViews[views.length] = view;
+        return newViews;
+    }
+
+    private static StretchableView[] removeFromArray(StretchableView[] views, StretchableView view) {
+        for (int i = 0; i < views.length; i++) {
+            if (views[i] == view) {
+                if (views.length == 1) {
+                    return EMPTY_VIEWS;
+                }
+                StretchableView[] newViews = new StretchableView[views.length - 1];
+                System.arraycopy(views, 0, newViews, 0, i);
+                System.arraycopy(views, i + 1, newViews, i, views.length - i - 1);
+                return newViews;
+            }
+        }
+        return views;
+    }
+
+    /**
+     * 拉伸进度回调
+     */
+    public interface OnStretchProgressListener {
+        /**
+         * @param listView
+         * @param stretch  拉伸高度, 顶部拉伸为负, 底部拉伸为正
+         * @param fraction stretch与列表高度之比
+         */
+        void onStretchProgress(StretchableListView listView, int stretch, float fraction);
+    }
+
+    /**
+     * 预加载回调
+     */
+    public interface OnPrefetchListener {
+        /**
+         * @param listView
+         * @param totalItemCount 回调时的getCount(), 同一数量只回调一次
+         */
+        void onPrefetch(StretchableListView listView, int totalItemCount);
     }
 
     public interface StretchListener {
@@ -417,150 +1254,74 @@ public class StretchableListView extends ListView {
     class ListVerticalResizeAnimation extends VerticalResizeAnimation {
 
         int lastHeight;
+        boolean absorbing; //fling吸收的拉伸阶段
 
-        @Override
-        public void complete() {
-            Log.d("VerticalResize", "complete: mLastHeight " + lastHeight);
-            super.complete();
-            if (stretchListener != null) {
-                stretchListener.onStretchReleaseComplete(StretchableListView.this, lastHeight, true);
-            }
-
-            //同时传递ScrollState为Idle
-            mainOnScrollListener.onScrollStateChanged(StretchableListView.this, OnScrollListener.SCROLL_STATE_IDLE);
+        //从当前位置拉伸到stretch, 完成后自动释放
+        void absorb(int stretch, int duration) {
+            this.absorbing = true;
+            configScroll(stateMachine.getLastStretch(), stretch, duration);
+            start();
         }
 
         @Override
-        protected void setHeight(int height) {
-            Log.d("VerticalResize", "setHeight: height=" + height + ", mLastHeight " + lastHeight);
-
-            super.setHeight(height);
-
-            if (stretchListener != null && lastStretch != height) {
-                stretchListener.onStretchHeightChanged(StretchableListView.this, lastStretch, height, true);
-            }
-            lastStretch = height;
-            if (height != 0) {
-                lastHeight = height;
-            }
-
-            int firstVisibleItem = StretchableListView.this.getFirstVisiblePosition();
-            int lastVisibleItemCount = StretchableListView.this.getLastVisiblePosition();
-            int totalItemCount = StretchableListView.this.getCount();
-
-            //同时传递当前是在scroll
-            mainOnScrollListener.onScroll(StretchableListView.this, firstVisibleItem, lastVisibleItemCount - firstVisibleItem + 1, totalItemCount);
+        public void cancel() {
+            this.absorbing = false;
+            super.cancel();
         }
-    }
-
-    /**
-     * 确定滑动方向与距离ßß
-     */
-    static class DefaultGestureListener extends GestureDetector.SimpleOnGestureListener {
-        private final Context context = App.getInstance();
-        private final int touchSlop = ViewConfiguration.get(context).getScaledTouchSlop();
 
-        // 手势为下滑：为正 手势上滑：为负
-        private float scrolledDistance = 0.0F;
-        private ListUtils.ScrollDirection scrollDirection = ListUtils.ScrollDirection.DOWN;
-        private boolean hasReset = false;
-
-        /**
-         * 快递点击
-         *
-         * @param e ACTION_UP
-         * @return
-         */
         @Override
-        public boolean onSingleTapUp(MotionEvent e) {
-            Log.d("GestureListener", "onSingleTapUp: " + e.getAction());
-
-            reset();
-            return super.onSingleTapUp(e);
+        protected void onFrameOverBudget(long frameIntervalNanos) {
+            metrics.frameOverBudgetCount++;
         }
 
-        /**
-         * 点击时
-         *
-         * @param e ACTION_DOWN
-         * @return
-         */
         @Override
-        public boolean onDown(MotionEvent e) {
-            Log.d("GestureListener", "onDown: " + e.getAction());
-            reset();
-            return super.onDown(e);
+        public int interrupt() {
+            this.absorbing = false;
+            return super.interrupt();
         }
 
-        /**
-         * @param e1        最初的ACTION_DOWN事件
-         * @param e2        最后一个ACTION_MOVE事件
-         * @param velocityX
-         * @param velocityY
-         * @return
-         */
         @Override
-        public boolean onFling(MotionEvent e1, MotionEvent e2, float velocityX, float velocityY) {
-            Log.d("GestureListener", "onFling: velocityY = " + velocityY);
-            boolean isVertical = false;
-            if (Math.abs(velocityY) > Math.abs(velocityX)) {
-                //偏纵向滑动
-                isVertical = true;
+        public void complete() {
+            if (DEBUG)
+                Log.d("VerticalResize", "complete: mLastHeight " + lastHeight);
+            super.complete();
+            if (absorbing) {
+                absorbing = false;
+                releaseStretch(stateMachine.getLastStretch());
+                return;
             }
-            this.scrollDirection = ListUtils.ScrollDirection.fromVelocity(scrollDirection, velocityX, velocityY, isVertical);
+            stretchListeners.onStretchReleaseComplete(StretchableListView.this, lastHeight, true);
 
-            //手势下滑为正; 手势上滑为负
-            this.scrolledDistance = -velocityY;
-            return super.onFling(e1, e2, velocityX, velocityY);
+            //同时传递ScrollState为Idle
+            mainOnScrollListener.onScrollStateChanged(StretchableListView.this, OnScrollListener.SCROLL_STATE_IDLE);
         }
 
-        /**
-         * @param e1        最初的ACTION_DOWN事件
-         * @param e2        ACTION_UP事件
-         * @param distanceX
-         * @param distanceY
-         * @return
-         */
         @Override
-        public boolean onScroll(MotionEvent e1, MotionEvent e2, float distanceX, float distanceY) {
-            Log.d("GestureListener", "onScroll: scrolledDistance = " + scrolledDistance + ", distanceY = " + distanceY + ", touchSlop = " + touchSlop);
+        protected void setHeight(int height) {
 
-            if (this.hasReset) {
-                this.hasReset = false;
-                return false;
-            }
-            float scrolledDistance = Math.abs(distanceY);
+            super.setHeight(height);
+            metrics.animationFrameCount++;
+            updateDrawnStretch(height);
 
-            //手势上滑 || 手抛下滑 || 滑动距离不足
-            if ((this.scrolledDistance >= 0.0F && distanceY > 0.0F) || (this.scrolledDistance <= 0.0F && distanceY < 0.0F) || scrolledDistance < this.touchSlop) {
-                this.scrolledDistance = distanceY + this.scrolledDistance;
-            } else {
-                this.scrolledDistance = 0;
+            int lastStretch = stateMachine.getLastStretch();
+            if (lastStretch != height) {
+                stretchListeners.onStretchHeightChanged(StretchableListView.this, lastStretch, height, true);
             }
-            if (distanceY < 0.0F) { //手势为向下没去
-                this.scrollDirection = ListUtils.ScrollDirection.UP;
-            } else {
-                this.scrollDirection = ListUtils.ScrollDirection.DOWN;
+            stateMachine.setLastStretch(height);
+            if (height != 0) {
+                lastHeight = height;
             }
-            Log.d("GestureListener", "scrollDirection = "+scrollDirection);
-            return super.onScroll(e1, e2, distanceX, distanceY);
-        }
-
-        public float getScrolledDistance() {
-            return this.scrolledDistance;
-        }
 
-        public ListUtils.ScrollDirection getScrollDirection() {
-            return this.scrollDirection;
-        }
+            dispatchStretchProgress(height);
 
-        public void setScrollDirection(ListUtils.ScrollDirection direction) {
-            this.scrollDirection = direction;
-        }
+            int firstVisibleItem = StretchableListView.this.getFirstVisiblePosition();
+            int visibleItemCount = StretchableListView.this.getLastVisiblePosition() - firstVisibleItem + 1;
+            int totalItemCount = StretchableListView.this.getCount();
 
-        public void reset() {
-            this.scrolledDistance = 0.0F;
-            this.hasReset = true;
+            //同时传递当前是在scroll, 只在可见范围变化时
+            if (firstVisibleItem != lastScrollFirstVisibleItem || visibleItemCount != lastScrollVisibleItemCount || totalItemCount != lastScrollTotalItemCount) {
+                mainOnScrollListener.onScroll(StretchableListView.this, firstVisibleItem, visibleItemCount, totalItemCount);
+            }
         }
     }
 }
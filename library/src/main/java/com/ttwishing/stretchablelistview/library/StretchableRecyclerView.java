@@ -0,0 +1,264 @@
+package com.ttwishing.stretchablelistview.library;
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.Canvas;
+import android.support.v4.view.ViewCompat;
+import android.support.v7.widget.RecyclerView;
+import android.util.AttributeSet;
+import android.view.MotionEvent;
+import android.view.ViewConfiguration;
+
+/**
+ * RecyclerView版本的StretchableListView
+ * 拉伸不再通过header/footer的StretchableView实现, 而是在绘制时平移内容,
+ * 露出的区域由StretchDecoration绘制, 拉伸过程中不会触发adapter的更新与重新布局
+ */
+public class StretchableRecyclerView extends RecyclerView {
+
+    private StretchListener stretchListener;//用户定义
+
+    //当前绘制的拉伸高度, 顶部为负, 底部为正
+    private int stretch;
+
+    private static final int INVALID_POINTER = -1;
+    private int activePointerId = INVALID_POINTER;
+    private float lastTouchY = -1.0F;
+
+    private final StretchStateMachine stateMachine = new StretchStateMachine(new StretchStateMachine.Callback() {
+
+        @Override
+        public void onStretchTouch(float y) {
+            if (resizeAnimation != null && resizeAnimation.isScrolling()) {
+                //没有收到ACTION_DOWN(如被可点击的child消费)时, 由第一个拉伸的ACTION_MOVE接管
+                takeOverRelease(y);
+            }
+        }
+
+        @Override
+        public void onStretchRestore(int lastStretch) {
+            restoreFromStretch(lastStretch);
+        }
+
+        @Override
+        public void onStretchStart(int lastStretch, int stretch) {
+            if (stretchListener != null) {
+                stretchListener.onStretchStart(StretchableRecyclerView.this, lastStretch, stretch, true);
+            }
+        }
+
+        @Override
+        public void onStretchChanged(int lastStretch, int stretch, boolean isStretchDown) {
+            updateStretch(stretch);
+            if (stretchListener != null) {
+                stretchListener.onStretchHeightChanged(StretchableRecyclerView.this, lastStretch, stretch, true);
+            }
+        }
+    }, ViewConfiguration.get(getContext()).getScaledTouchSlop());
+
+    private RecyclerVerticalResizeAnimation resizeAnimation; //首次释放时创建
+
+    public StretchableRecyclerView(Context context) {
+        super(context);
+        init();
+    }
+
+    public StretchableRecyclerView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        init();
+    }
+
+    public StretchableRecyclerView(Context context, AttributeSet attrs, int defStyle) {
+        super(context, attrs, defStyle);
+        init();
+    }
+
+    private void init() {
+        //由拉伸代替系统的边缘效果
+        setOverScrollMode(OVER_SCROLL_NEVER);
+    }
+
+    public void setStretchListener(StretchListener listener) {
+        this.stretchListener = listener;
+    }
+
+    /**
+     * @return 当前拉伸高度, 顶部拉伸为负, 底部拉伸为正
+     */
+    public int getStretch() {
+        return this.stretch;
+    }
+
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+        if (stretch != 0) {
+            //顶部拉伸时内容下移, 底部拉伸时内容上移
+            int saveCount = canvas.save();
+            canvas.translate(0, -stretch);
+            super.dispatchDraw(canvas);
+            canvas.restoreToCount(saveCount);
+        } else {
+            super.dispatchDraw(canvas);
+        }
+    }
+
+    @Override
+    protected void onConfigurationChanged(Configuration newConfig) {
+        resetStretch();
+        super.onConfigurationChanged(newConfig);
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent ev) {
+        int action = ev.getActionMasked();
+
+        boolean isStretching = false; //包括拉伸和拉伸后的还原
+        if (action == MotionEvent.ACTION_DOWN) {
+            this.activePointerId = ev.getPointerId(0);
+            this.lastTouchY = ev.getY();
+            stateMachine.onDown();
+            if (resizeAnimation != null && resizeAnimation.isScrolling()) {
+                //释放动画中重新按下
+                takeOverRelease(ev.getY());
+            }
+        } else if (action == MotionEvent.ACTION_MOVE) {
+            float y = ev.getY(getActivePointerIndex(ev));
+            if (this.lastTouchY >= 0) {
+                stateMachine.onScroll(this.lastTouchY - y);
+            }
+            this.lastTouchY = y;
+
+            boolean atTop = !ViewCompat.canScrollVertically(this, -1);
+            boolean atBottom = !ViewCompat.canScrollVertically(this, 1);
+            isStretching = stateMachine.onMove(y, atTop, atTop, atBottom, atBottom);
+        } else if (action == MotionEvent.ACTION_POINTER_DOWN) {
+            //新按下的手指接管拉伸
+            switchActivePointer(ev, getActivePointerIndex(ev), ev.getActionIndex());
+            isStretching = stateMachine.getLastStretch() != 0;
+        } else if (action == MotionEvent.ACTION_POINTER_UP) {
+            //抬起的是当前手指时, 由剩下的手指接管
+            int index = ev.getActionIndex();
+            if (ev.getPointerId(index) == this.activePointerId) {
+                switchActivePointer(ev, index, index == 0 ? 1 : 0);
+            }
+            isStretching = stateMachine.getLastStretch() != 0;
+        } else if (action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL) {
+            //将拉伸还原
+            int stretch = stateMachine.reset();
+            if (stretch != 0) {
+                releaseStretch(stretch);
+                isStretching = true;
+            }
+            this.activePointerId = INVALID_POINTER;
+            this.lastTouchY = -1.0F;
+        }
+        if (isStretching) {
+            return true;
+        } else {
+            return super.onTouchEvent(ev);
+        }
+    }
+
+    private int getActivePointerIndex(MotionEvent ev) {
+        int index = ev.findPointerIndex(this.activePointerId);
+        return index < 0 ? 0 : index;
+    }
+
+    //切换当前手指, 拉伸高度保持不变
+    private void switchActivePointer(MotionEvent ev, int fromIndex, int toIndex) {
+        float y = ev.getY(toIndex);
+        stateMachine.offsetMotionY(y - ev.getY(fromIndex));
+        this.lastTouchY = y;
+        this.activePointerId = ev.getPointerId(toIndex);
+    }
+
+    private void updateStretch(int stretch) {
+        if (this.stretch != stretch) {
+            this.stretch = stretch;
+            invalidate();
+        }
+    }
+
+    //从当前位置释放
+    private void releaseStretch(int stretch) {
+        if (stretchListener != null)
+            stretchListener.onStretchReleaseStart(this, stretch, true);
+
+        if (this.resizeAnimation == null) {
+            this.resizeAnimation = new RecyclerVerticalResizeAnimation();
+        }
+        this.resizeAnimation.configScroll(stretch, 0, 250);
+        this.resizeAnimation.start();
+    }
+
+    //停止释放动画, 从当前高度继续拉伸
+    private void takeOverRelease(float y) {
+        int stretch = resizeAnimation.interrupt();
+        if (stretch != 0) {
+            stateMachine.grab(y, stretch);
+        } else {
+            //已回到原点但最后一帧尚未执行, 按动画结束处理, 保证onStretchReleaseComplete
+            resizeAnimation.finish();
+        }
+    }
+
+    private void resetStretch() {
+        int stretch = stateMachine.reset();
+        if (stretch != 0)
+            restoreFromStretch(stretch);
+    }
+
+    private void restoreFromStretch(int lastStretch) {
+        updateStretch(0);
+        if (this.stretchListener != null) {
+            this.stretchListener.onStretchHeightChanged(this, lastStretch, 0, true);
+            this.stretchListener.onStretchReleaseComplete(this, lastStretch, true);
+        }
+    }
+
+    /**
+     * 与StretchableListView.StretchListener相同的回调约定
+     */
+    public interface StretchListener {
+        //拉伸程度变化
+        void onStretchHeightChanged(StretchableRecyclerView recyclerView, int lastStretch, int stretch, boolean force);
+
+        //开始拉伸
+        void onStretchStart(StretchableRecyclerView recyclerView, int lastStretch, int stretch, boolean force);
+
+        //从当前height开始释放/还原
+        void onStretchReleaseStart(StretchableRecyclerView recyclerView, int stretch, boolean force);
+
+        //拉伸还原完毕
+        void onStretchReleaseComplete(StretchableRecyclerView recyclerView, int lastStretch, boolean force);
+
+    }
+
+    class RecyclerVerticalResizeAnimation extends VerticalResizeAnimation {
+
+        int lastHeight;
+
+        @Override
+        public void complete() {
+            super.complete();
+            if (stretchListener != null) {
+                stretchListener.onStretchReleaseComplete(StretchableRecyclerView.this, lastHeight, true);
+            }
+        }
+
+        @Override
+        protected void setHeight(int height) {
+            super.setHeight(height);
+            updateStretch(height);
+
+            int lastStretch = stateMachine.getLastStretch();
+            if (stretchListener != null && lastStretch != height) {
+                stretchListener.onStretchHeightChanged(StretchableRecyclerView.this, lastStretch, height, true);
+            }
+            stateMachine.setLastStretch(height);
+            if (height != 0) {
+                lastHeight = height;
+            }
+        }
+    }
+}
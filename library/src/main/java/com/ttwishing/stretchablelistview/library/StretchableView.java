@@ -2,20 +2,16 @@ package com.ttwishing.stretchablelistview.library;
 
 import android.content.Context;
 import android.content.res.TypedArray;
-import android.database.DataSetObserver;
+import android.support.v4.view.ViewCompat;
 import android.util.AttributeSet;
-import android.util.Log;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.ViewParent;
-import android.widget.ListAdapter;
 import android.widget.ListView;
 import android.widget.RelativeLayout;
 
 public class StretchableView extends RelativeLayout implements StretchableListView.StretchListener {
 
-    private ListAdapter listAdapter;
-
     private final View view;
     private int minHeight;
     private int which = 0;  //0:top 1:bottom
@@ -23,6 +19,11 @@ public class StretchableView extends RelativeLayout implements StretchableListVi
     private int fillHeight;
     private boolean isStretching;
 
+    //拉伸过程中将内容提升为硬件层, 内容只合成不重绘
+    private boolean hardwareLayerOnStretch = true;
+    private View[] promotedChildren;
+    private int promotedCount;
+
     public StretchableView(Context context) {
         this(context, null);
     }
@@ -37,6 +38,7 @@ public class StretchableView extends RelativeLayout implements StretchableListVi
         TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.StretchableView);
         this.minHeight = a.getDimensionPixelSize(R.styleable.StretchableView_minHeight, 0);
         this.which = a.getInteger(R.styleable.StretchableView_which, 0);
+        this.hardwareLayerOnStretch = a.getBoolean(R.styleable.StretchableView_hardwareLayerOnStretch, true);
         a.recycle();
 
         this.view = new View(context);
@@ -51,27 +53,52 @@ public class StretchableView extends RelativeLayout implements StretchableListVi
         addView(this.view, -1, minHeight);
     }
 
-    private final DataSetObserver dataSetObserver = new DataSetObserver() {
-
-        @Override
-        public void onChanged() {
-            notifyDataSetChanged(false);
+    /**
+     * 拉伸开始时是否将内容提升为硬件层, 拉伸还原完毕后恢复
+     *
+     * @param hardwareLayerOnStretch 默认为true
+     */
+    public void setHardwareLayerOnStretch(boolean hardwareLayerOnStretch) {
+        this.hardwareLayerOnStretch = hardwareLayerOnStretch;
+        if (!hardwareLayerOnStretch) {
+            demoteLayers();
         }
+    }
 
-        @Override
-        public void onInvalidated() {
-            notifyDataSetChanged(false);
-        }
-    };
+    public boolean isHardwareLayerOnStretch() {
+        return this.hardwareLayerOnStretch;
+    }
 
-    protected void setAdapter(ListAdapter listAdapter) {
-        if (listAdapter != null)
-            listAdapter.unregisterDataSetObserver(this.dataSetObserver);
+    //只提升未设置layer的内容view, 占位的view高度每帧变化, 不提升
+    private void promoteLayers() {
+        if (!this.hardwareLayerOnStretch || this.promotedCount > 0) {
+            return;
+        }
+        int count = getChildCount();
+        if (this.promotedChildren == null || this.promotedChildren.length < count) {
+            this.promotedChildren = new View[count];
+        }
+        for (int i = 0; i < count; i++) {
+            View child = getChildAt(i);
+            if (child != this.view && ViewCompat.getLayerType(child) == ViewCompat.LAYER_TYPE_NONE) {
+                ViewCompat.setLayerType(child, ViewCompat.LAYER_TYPE_HARDWARE, null);
+                this.promotedChildren[this.promotedCount++] = child;
+            }
+        }
+    }
 
-        if (listAdapter != null)
-            listAdapter.registerDataSetObserver(this.dataSetObserver);
+    private void demoteLayers() {
+        for (int i = 0; i < this.promotedCount; i++) {
+            ViewCompat.setLayerType(this.promotedChildren[i], ViewCompat.LAYER_TYPE_NONE, null);
+            this.promotedChildren[i] = null;
+        }
+        this.promotedCount = 0;
+    }
 
-        this.listAdapter = listAdapter;
+    @Override
+    protected void onDetachedFromWindow() {
+        demoteLayers();
+        super.onDetachedFromWindow();
     }
 
     //计算可见高度
@@ -81,7 +108,13 @@ public class StretchableView extends RelativeLayout implements StretchableListVi
             ListView listView = (ListView) parent;
             boolean isStackFromBottom = listView.isStackFromBottom(); //false 内容从底部开始填充,此场景都是从头开始
             if ((this.which != 0 || !isStackFromBottom) && (this.which != 1 || isStackFromBottom)) { // (bottom || 从头填充) && (top || 从底填充)
-                return Math.max(listView.getHeight() - calListViewContentHeight(listView, this), 0);
+                int contentHeight;
+                if (listView instanceof StretchableListView) {
+                    contentHeight = ((StretchableListView) listView).getContentHeight(this);
+                } else {
+                    contentHeight = calListViewContentHeight(listView, this);
+                }
+                return Math.max(listView.getHeight() - contentHeight, 0);
             }
         }
         return 0;
@@ -97,19 +130,19 @@ public class StretchableView extends RelativeLayout implements StretchableListVi
             //view是否可见
             boolean visible = listView.indexOfChild(view) >= 0;
             if (visible) {
-                Log.d("kurt_test", "calListViewContentHeight: " + lastBottom + " - " + firstTop + " - " + view.getHeight() + ", " + listView.getHeight());
                 return lastBottom - firstTop - view.getHeight();
             } else {
-                Log.d("kurt_test", "calListViewContentHeight: " + lastBottom + " - " + firstTop + ", " + listView.getHeight());
                 return lastBottom - firstTop;
             }
         }
         return 0;
     }
 
-    private void notifyDataSetChanged(boolean shouldLayout) {
+    //adapter数据变化, 由StretchableListView每帧合并后调用
+    void notifyDataSetChanged(boolean shouldLayout) {
         this.fillHeight = -1;
         this.isStretching = false;
+        demoteLayers();
         setStretchedHeight(0, shouldLayout);
     }
 
@@ -127,29 +160,46 @@ public class StretchableView extends RelativeLayout implements StretchableListVi
             lp.height = Math.max(this.minHeight, this.fillHeight) + Math.abs(stretch);
             if (requestLayout && oldHeight != lp.height) {
                 this.view.requestLayout();
+                ViewParent parent = getParent();
+                if (parent instanceof StretchableListView) {
+                    ((StretchableListView) parent).onStretchLayoutRequested();
+                }
             }
         }
     }
 
     @Override
     public void onStretchHeightChanged(StretchableListView observableListView, int lastStretch, int stretch, boolean force) {
-        if (lastStretch < 0 && this.which == 0) { //header
-            setStretchedHeight(stretch, true);
+        boolean isHeader = lastStretch < 0 && this.which == 0; //header
+        boolean isFooter = lastStretch > 0 && this.which == 1; //bottom
+        if (!isHeader && !isFooter) {
+            return;
         }
-        if (lastStretch > 0 && this.which == 1) { //bottom
-            setStretchedHeight(stretch, true);
+        if (stretch != 0 && this.isStretching) {
+            promoteLayers();
         }
+        if (observableListView.isDrawOnlyStretch()) { //由ListView在绘制时体现
+            return;
+        }
+        setStretchedHeight(stretch, true);
 
     }
 
     @Override
     public void onStretchReleaseComplete(StretchableListView observableListView, int lastStretch, boolean force) {
         this.isStretching = false;
+        demoteLayers();
+        if (observableListView.isDrawOnlyStretch()) { //还原完毕后一次性提交高度
+            setStretchedHeight(0, true);
+        }
     }
 
     @Override
     public void onStretchStart(StretchableListView observableListView, int lastStretch, int stretch, boolean force) {
         this.isStretching = true;
+        if ((stretch < 0 && this.which == 0) || (stretch > 0 && this.which == 1)) {
+            promoteLayers();
+        }
     }
 
     @Override
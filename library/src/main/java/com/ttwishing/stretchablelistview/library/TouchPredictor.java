@@ -0,0 +1,80 @@
+package com.ttwishing.stretchablelistview.library;
+
+/**
+ * 由ACTION_MOVE中批量的历史采样估计手指速度, 并将y坐标向前预测一小段时间,
+ * 抵消从采样到显示之间的延迟, 使拉伸更贴近手指
+ * 速度做指数平滑; 预测量不超过maxPrediction, 速度反向时不预测, 避免回弹过冲
+ */
+class TouchPredictor {
+
+    //向前预测的时间, 约为半帧到一帧
+    private static final float PREDICTION_MILLIS = 8.0F;
+
+    //新速度的权重
+    private static final float SMOOTHING = 0.5F;
+
+    private final float maxPrediction;
+
+    private float lastY;
+    private long lastTime;
+    private boolean hasSample;
+    private float velocity; //像素/毫秒, 手指下移为正
+    private boolean reversed;
+
+    /**
+     * @param maxPrediction 预测量的上限, 像素
+     */
+    TouchPredictor(float maxPrediction) {
+        this.maxPrediction = maxPrediction;
+    }
+
+    /**
+     * 开始新的手势或更换手指
+     */
+    void reset(float y, long timeMillis) {
+        this.lastY = y;
+        this.lastTime = timeMillis;
+        this.hasSample = true;
+        this.velocity = 0;
+        this.reversed = false;
+    }
+
+    /**
+     * 按时间顺序添加采样, 包括MotionEvent的历史采样
+     */
+    void addSample(float y, long timeMillis) {
+        if (!this.hasSample) {
+            reset(y, timeMillis);
+            return;
+        }
+        long dt = timeMillis - this.lastTime;
+        if (dt > 0) {
+            float instantVelocity = (y - this.lastY) / dt;
+            this.reversed = instantVelocity * this.velocity < 0;
+            if (this.reversed) {
+                //反向时丢弃旧速度
+                this.velocity = instantVelocity;
+            } else {
+                this.velocity += (instantVelocity - this.velocity) * SMOOTHING;
+            }
+            this.lastTime = timeMillis;
+        }
+        this.lastY = y;
+    }
+
+    /**
+     * @return 预测的y
+     */
+    float getPredictedY() {
+        if (this.reversed) {
+            return this.lastY;
+        }
+        float prediction = this.velocity * PREDICTION_MILLIS;
+        if (prediction > this.maxPrediction) {
+            prediction = this.maxPrediction;
+        } else if (prediction < -this.maxPrediction) {
+            prediction = -this.maxPrediction;
+        }
+        return this.lastY + prediction;
+    }
+}
@@ -1,43 +1,138 @@
 package com.ttwishing.stretchablelistview.library;
 
+import android.annotation.TargetApi;
+import android.os.Build;
 import android.os.Handler;
 import android.os.Looper;
+import android.view.Choreographer;
 import android.view.View;
 import android.view.ViewGroup;
-import android.view.animation.DecelerateInterpolator;
 import android.view.animation.Interpolator;
-import android.widget.Scroller;
 
 public class VerticalResizeAnimation implements Runnable {
 
-    private static final String TAG = VerticalResizeAnimation.class.getCanonicalName();
+    //无Choreographer时(API 16以下)两帧之间的间隔, 与旧版ValueAnimator一致
+    private static final long FALLBACK_FRAME_DELAY = 10L;
+
+    //60Hz下的帧预算
+    private static final long DEFAULT_FRAME_BUDGET_NANOS = 16666667L;
 
     private boolean isScrolling = false;
-    private Scroller mScroller;
+    private AnimationEngine engine; //未指定时在首次使用时创建
     private int endY;
+    private int duration;
 
     private int min;
     private int max;
     private View view;
 
-    private Handler mHandler = new Handler(Looper.getMainLooper());
+    private Handler mHandler; //只在不使用Choreographer时创建
+
+    //vsync驱动: 每个显示帧只推进一次动画引擎
+    private FrameDriver frameDriver;
+    private long lastFrameTimeNanos;
+    private long frameBudgetNanos = DEFAULT_FRAME_BUDGET_NANOS;
 
+    /**
+     * 不关联view, 由子类重写setHeight
+     */
     public VerticalResizeAnimation() {
-        this(null);
+        setUseFrameCallback(true);
     }
 
     public VerticalResizeAnimation(View view) {
-        this(view, new DecelerateInterpolator(App.getInstance(), null));
+        this(view, (AnimationEngine) null);
     }
 
     public VerticalResizeAnimation(View view, Interpolator interpolator) {
-        this.mScroller = new Scroller(App.getInstance(), interpolator);
+        this(view, new ScrollerAnimationEngine(interpolator));
+    }
+
+    /**
+     * @param engine 为null时使用默认的ScrollerAnimationEngine
+     */
+    public VerticalResizeAnimation(View view, AnimationEngine engine) {
+        if (view == null) {
+            throw new IllegalArgumentException("view == null");
+        }
+        this.engine = engine;
         this.view = view;
+        setUseFrameCallback(true);
+    }
+
+    private AnimationEngine engine() {
+        if (this.engine == null) {
+            this.engine = new ScrollerAnimationEngine();
+        }
+        return this.engine;
+    }
+
+    /**
+     * 更换动画引擎, 正在进行的动画由新引擎从当前位置继续
+     *
+     * @param engine 如ScrollerAnimationEngine, SpringAnimationEngine
+     */
+    public void setAnimationEngine(AnimationEngine engine) {
+        if (engine == null) {
+            throw new IllegalArgumentException("engine == null");
+        }
+        int current = 0;
+        if (this.engine != null) {
+            current = this.engine.getCurrent();
+            this.engine.cancel();
+        }
+        this.engine = engine;
+        if (isScrolling) {
+            engine.start(current, endY, duration);
+        }
+    }
+
+    public AnimationEngine getAnimationEngine() {
+        return engine();
+    }
+
+    /**
+     * 是否使用Choreographer逐帧驱动, API 16以下始终退回到Handler
+     *
+     * @param useFrameCallback true: 每个vsync推进一次; false: 通过Handler循环推进
+     */
+    public void setUseFrameCallback(boolean useFrameCallback) {
+        removeScheduledFrame();
+        if (useFrameCallback && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            if (this.frameDriver == null) {
+                this.frameDriver = new FrameDriver();
+            }
+        } else {
+            this.frameDriver = null;
+        }
+        if (isScrolling) {
+            scheduleFrame();
+        }
+    }
+
+    public boolean isUsingFrameCallback() {
+        return this.frameDriver != null;
+    }
+
+    /**
+     * @param frameBudgetNanos 每帧的时间预算, 即显示刷新周期
+     */
+    public void setFrameBudgetNanos(long frameBudgetNanos) {
+        this.frameBudgetNanos = frameBudgetNanos;
+    }
+
+    /**
+     * 与上一帧的间隔超出预算的1.5倍(至少错过一次vsync)时回调
+     *
+     * @param frameIntervalNanos 与上一帧的间隔
+     */
+    protected void onFrameOverBudget(long frameIntervalNanos) {
     }
 
     //配置滑动参数,其后执行start()方法,实现真正的滑动
     public void configScroll(int startY, int endY, int duration) {
-        this.mScroller.startScroll(0, startY, 0, endY - startY, duration);
+        engine().start(startY, endY, duration);
+        this.duration = duration;
         this.min = Math.min(startY, endY);
         this.max = Math.max(startY, endY);
         this.endY = endY;
@@ -45,15 +140,72 @@ public class VerticalResizeAnimation implements Runnable {
 
     public void start() {
         isScrolling = true;
-        mHandler.post(this);
+        lastFrameTimeNanos = 0;
+        removeScheduledFrame();
+        scheduleFrame();
     }
 
     public void complete() {
     }
 
 
+    /**
+     * 停止动画, 不再推进也不回调complete
+     */
     public void cancel() {
-        this.mScroller.forceFinished(true);
+        //拉伸过程中每个ACTION_MOVE都会调用, 只在有待执行的帧时移除
+        if (this.isScrolling) {
+            removeScheduledFrame();
+            this.isScrolling = false;
+        }
+        if (this.engine != null) {
+            this.engine.cancel();
+        }
+    }
+
+    /**
+     * 动画进行中更换目标值, 从当前位置和速度继续, 不回调complete
+     *
+     * @param endY 新的目标值
+     */
+    public void retarget(int endY) {
+        AnimationEngine engine = engine();
+        int current = engine.getCurrent();
+        engine.retarget(endY);
+        //保留的速度可能先背离目标, 只限制不越过目标
+        this.min = endY < current ? endY : Integer.MIN_VALUE;
+        this.max = endY > current ? endY : Integer.MAX_VALUE;
+        this.endY = endY;
+        if (!isScrolling) {
+            start();
+        }
+    }
+
+    /**
+     * 停止在当前高度, 不回调complete, 用于在动画中重新拖动
+     *
+     * @return 当前高度
+     */
+    public int interrupt() {
+        removeScheduledFrame();
+        this.isScrolling = false;
+        if (this.engine == null) {
+            return 0;
+        }
+        this.engine.cancel();
+        return this.engine.getCurrent();
+    }
+
+    /**
+     * 立即结束在当前高度, 与动画正常结束相同: setHeight后回调complete
+     */
+    public void finish() {
+        setHeight(interrupt());
+        complete();
+    }
+
+    public int getCurrentHeight() {
+        return this.engine == null ? 0 : this.engine.getCurrent();
     }
 
     public boolean isScrolling() {
@@ -62,21 +214,81 @@ public class VerticalResizeAnimation implements Runnable {
 
     @Override
     public void run() {
-        if (mScroller.computeScrollOffset()) {
+        doFrame(System.nanoTime());
+    }
+
+    private void doFrame(long frameTimeNanos) {
+        if (frameTimeNanos == lastFrameTimeNanos) {
+            //同一帧内已推进过
+            scheduleFrame();
+            return;
+        }
+        if (step(frameTimeNanos)) {
+            scheduleFrame();
+        }
+    }
+
+    /**
+     * 推进一帧, 不安排下一帧; 完成时回调complete
+     *
+     * @param frameTimeNanos 当前帧的时间
+     * @return 是否仍在滑动
+     */
+    boolean step(long frameTimeNanos) {
+        if (lastFrameTimeNanos != 0) {
+            long frameIntervalNanos = frameTimeNanos - lastFrameTimeNanos;
+            if (frameIntervalNanos * 2 > frameBudgetNanos * 3) {
+                onFrameOverBudget(frameIntervalNanos);
+            }
+        }
+        lastFrameTimeNanos = frameTimeNanos;
+
+        boolean traced = StretchTrace.beginSection(StretchTrace.SECTION_ANIMATION_FRAME);
+        try {
+            return computeFrame(frameTimeNanos);
+        } finally {
+            StretchTrace.endSection(traced);
+        }
+    }
+
+    private boolean computeFrame(long frameTimeNanos) {
+        AnimationEngine engine = engine();
+        if (engine.computeFrame(frameTimeNanos)) {
             //滑动中
-            int currentY = mScroller.getCurrY();
+            int currentY = engine.getCurrent();
             if (currentY < min) {
                 currentY = min;
             } else if (currentY > max) {
                 currentY = max;
             }
             setHeight(currentY);
-            mHandler.post(this);
+            return true;
         } else {
             //滑动完成
             isScrolling = false;
             setHeight(endY);
             complete();
+            return false;
+        }
+    }
+
+    private void scheduleFrame() {
+        if (frameDriver != null) {
+            frameDriver.post();
+        } else {
+            if (mHandler == null) {
+                mHandler = new Handler(Looper.getMainLooper());
+            }
+            mHandler.postDelayed(this, FALLBACK_FRAME_DELAY);
+        }
+    }
+
+    private void removeScheduledFrame() {
+        if (frameDriver != null) {
+            frameDriver.remove();
+        }
+        if (mHandler != null) {
+            mHandler.removeCallbacks(this);
         }
     }
 
@@ -89,4 +301,21 @@ public class VerticalResizeAnimation implements Runnable {
             }
         }
     }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private class FrameDriver implements Choreographer.FrameCallback {
+
+        void post() {
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+
+        void remove() {
+            Choreographer.getInstance().removeFrameCallback(this);
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            VerticalResizeAnimation.this.doFrame(frameTimeNanos);
+        }
+    }
 }
@@ -0,0 +1,137 @@
+package com.ttwishing.stretchablelistview.library;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ItemHeightCacheTest {
+
+    private ItemHeightCache cache;
+
+    @Before
+    public void setUp() {
+        cache = new ItemHeightCache();
+        cache.reset(10, 2);
+    }
+
+    @Test
+    public void emptyCacheEstimatesZero() {
+        assertEquals(10, cache.size());
+        assertEquals(0, cache.getAverageHeight());
+        assertEquals(0, cache.getEstimatedOffset(5));
+        assertEquals(0, cache.getEstimatedTotal());
+    }
+
+    @Test
+    public void unknownPositionsUseAverage() {
+        cache.put(0, 0, 100);
+        cache.put(1, 0, 200);
+        assertEquals(150, cache.getAverageHeight());
+        assertEquals(0, cache.getEstimatedOffset(0));
+        assertEquals(100, cache.getEstimatedOffset(1));
+        assertEquals(300, cache.getEstimatedOffset(2));
+        assertEquals(300 + 3 * 150, cache.getEstimatedOffset(5));
+        assertEquals(300 + 8 * 150, cache.getEstimatedTotal());
+        assertEquals(cache.getEstimatedTotal(), cache.getEstimatedOffset(100));
+    }
+
+    @Test
+    public void putUpdatesHeight() {
+        cache.put(3, 0, 100);
+        cache.put(3, 0, 60);
+        assertEquals(60, cache.getAverageHeight());
+        assertEquals(3 * 60 + 60, cache.getEstimatedOffset(4));
+        assertEquals(10 * 60, cache.getEstimatedTotal());
+    }
+
+    @Test
+    public void fixedHeightIsKnownButNotAveraged() {
+        cache.put(1, 0, 100);
+        cache.putFixed(0, 1000);
+        assertEquals(100, cache.getAverageHeight());
+        assertEquals(1000, cache.getEstimatedOffset(1));
+        assertEquals(1000 + 100, cache.getEstimatedOffset(2));
+        assertEquals(1000 + 9 * 100, cache.getEstimatedTotal());
+
+        cache.putFixed(0, 0);
+        assertEquals(100, cache.getAverageHeight());
+        assertEquals(0, cache.getEstimatedOffset(1));
+        assertEquals(9 * 100, cache.getEstimatedTotal());
+    }
+
+    @Test
+    public void switchBetweenFixedAndAveraged() {
+        cache.put(1, 0, 100);
+        cache.putFixed(2, 1000);
+        cache.put(2, 0, 300);
+        assertEquals(200, cache.getAverageHeight());
+        assertEquals(200 + 100 + 300, cache.getEstimatedOffset(3));
+        assertEquals(10 * 200, cache.getEstimatedTotal());
+
+        cache.putFixed(2, 1000);
+        assertEquals(100, cache.getAverageHeight());
+        assertEquals(100 + 100 + 1000, cache.getEstimatedOffset(3));
+        assertEquals(1000 + 9 * 100, cache.getEstimatedTotal());
+    }
+
+    @Test
+    public void viewTypeChangeMovesTypeStats() {
+        cache.put(0, 0, 100);
+        cache.put(1, 1, 300);
+        cache.put(0, 1, 300);
+        cache.reset(10, 2);
+        //重新布局前按类型统计估算: 两个位置都是类型1
+        assertEquals(300, cache.getAverageHeight());
+    }
+
+    @Test
+    public void fixedPositionLeavesTypeStats() {
+        cache.put(0, 0, 100);
+        cache.put(1, 0, 300);
+        cache.putFixed(1, 1000);
+        cache.reset(10, 2);
+        assertEquals(100, cache.getAverageHeight());
+    }
+
+    @Test
+    public void outOfRangeViewTypeSkipsTypeStats() {
+        cache.put(0, -2, 1000);
+        cache.put(1, 5, 1000);
+        cache.put(2, 0, 100);
+        assertEquals(700, cache.getAverageHeight());
+        cache.reset(10, 2);
+        assertEquals(100, cache.getAverageHeight());
+    }
+
+    @Test
+    public void resetKeepsTypeStatsAndGrows() {
+        cache.put(0, 0, 100);
+        cache.put(9, 0, 100);
+        cache.reset(1002, 2);
+        assertEquals(1002, cache.size());
+        assertEquals(100, cache.getAverageHeight());
+        cache.putFixed(0, 0);
+        cache.putFixed(1001, 0);
+        assertEquals(100000, cache.getEstimatedTotal());
+        cache.put(500, 0, 100);
+        assertEquals(499 * 100, cache.getEstimatedOffset(500));
+    }
+
+    @Test
+    public void outOfRangePositionIgnored() {
+        cache.put(-1, 0, 100);
+        cache.put(10, 0, 100);
+        cache.putFixed(10, 100);
+        assertEquals(0, cache.getEstimatedTotal());
+    }
+
+    @Test
+    public void clearDropsTypeStats() {
+        cache.put(0, 0, 100);
+        cache.clear();
+        assertEquals(0, cache.size());
+        cache.reset(10, 2);
+        assertEquals(0, cache.getAverageHeight());
+    }
+}
@@ -0,0 +1,109 @@
+package com.ttwishing.stretchablelistview.library;
+
+import android.view.animation.Interpolator;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ScrollerAnimationEngineTest {
+
+    private static final long FRAME_NANOS = 16666667L;
+
+    private ScrollerAnimationEngine engine;
+    private long frameTimeNanos;
+
+    @Before
+    public void setUp() {
+        engine = new ScrollerAnimationEngine(new Interpolator() {
+            @Override
+            public float getInterpolation(float input) {
+                return input;
+            }
+        });
+        frameTimeNanos = 1000000000L;
+    }
+
+    private boolean frame() {
+        frameTimeNanos += FRAME_NANOS;
+        return engine.computeFrame(frameTimeNanos);
+    }
+
+    @Test
+    public void runsToTarget() {
+        engine.start(0, 1000, 1000);
+        assertFalse(engine.isFinished());
+        int frames = 0;
+        while (frame()) {
+            frames++;
+        }
+        assertEquals(1000, engine.getCurrent());
+        assertTrue(engine.isFinished());
+        assertEquals(59, frames);
+    }
+
+    @Test
+    public void retargetKeepsPositionAndVelocity() {
+        //1px/ms
+        engine.start(0, 1000, 1000);
+        for (int i = 0; i < 30; i++) {
+            frame();
+        }
+        int before = engine.getCurrent();
+        engine.retarget(2000);
+        assertEquals(before, engine.getCurrent());
+
+        frame();
+        int step = engine.getCurrent() - before;
+        //不保留速度时第一帧约为3px/ms
+        assertEquals(17, step, 2);
+
+        while (frame()) {
+        }
+        assertEquals(2000, engine.getCurrent());
+    }
+
+    @Test
+    public void retargetReversesSmoothly() {
+        engine.start(0, 1000, 1000);
+        for (int i = 0; i < 30; i++) {
+            frame();
+        }
+        int before = engine.getCurrent();
+        engine.retarget(0);
+        frame();
+        //仍沿原方向运动, 之后回到目标
+        assertTrue(engine.getCurrent() > before);
+        while (frame()) {
+        }
+        assertEquals(0, engine.getCurrent());
+    }
+
+    @Test
+    public void retargetAfterFinishStartsFromRest() {
+        engine.start(0, 100, 100);
+        while (frame()) {
+        }
+        engine.retarget(0);
+        assertFalse(engine.isFinished());
+        frame();
+        //从静止开始, 第一帧慢于线性插值的17px
+        assertTrue(engine.getCurrent() < 100);
+        assertTrue(engine.getCurrent() > 100 - 17);
+        while (frame()) {
+        }
+        assertEquals(0, engine.getCurrent());
+    }
+
+    @Test
+    public void cancelStopsAtCurrent() {
+        engine.start(0, 1000, 1000);
+        frame();
+        int current = engine.getCurrent();
+        engine.cancel();
+        assertTrue(engine.isFinished());
+        assertFalse(frame());
+        assertEquals(current, engine.getCurrent());
+    }
+}
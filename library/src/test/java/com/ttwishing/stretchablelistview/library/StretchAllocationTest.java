@@ -0,0 +1,258 @@
+package com.ttwishing.stretchablelistview.library;
+
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.View;
+import android.widget.ArrayAdapter;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.Shadows;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.Implementation;
+import org.robolectric.annotation.Implements;
+import org.robolectric.shadows.ShadowLooper;
+import org.robolectric.shadows.ShadowView;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * 拉伸与释放的热路径不应产生内存分配: 每个ACTION_MOVE, 合并后每帧应用的拉伸, 每帧释放动画都不分配对象
+ * 使用默认配置: 合并ACTION_MOVE, ScrollerAnimationEngine
+ * 分配量由ThreadMXBean.getThreadAllocatedBytes统计, 需要HotSpot
+ * <p>
+ * Robolectric 3.1中view无法attach到ViewRootImpl, 由Choreographer驱动的帧无法在测试中执行:
+ * postOnAnimation与释放动画的帧由测试模拟, 逐帧执行; Choreographer自身的调度不在统计范围内
+ * Robolectric的ShadowView.requestLayout每次调用都创建代理对象(设备上不分配), 且不能为View单独替换shadow:
+ * StretchableView内部View的requestLayout按实测的单次开销扣除
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23,
+        shadows = StretchAllocationTest.ShadowFrameRunQueue.class)
+public class StretchAllocationTest {
+
+    private static final int MOVES = 30;
+    private static final int MAX_FRAMES = 600;
+    private static final long FRAME_NANOS = 16666667L;
+
+    /**
+     * 代替Choreographer: 未attach的view的postOnAnimation进入ViewRootImpl.RunQueue, 每次post都分配;
+     * 这里只记录Runnable, 由测试在下一帧执行. 设备上attach后由Choreographer执行, 回调记录是复用的
+     */
+    @Implements(className = "android.view.ViewRootImpl$RunQueue")
+    public static class ShadowFrameRunQueue {
+
+        private static Runnable pendingFrame;
+
+        @Implementation
+        public void post(Runnable action) {
+            assertTrue("only one pending frame expected", pendingFrame == null || pendingFrame == action);
+            pendingFrame = action;
+        }
+
+        @Implementation
+        public void removeCallbacks(Runnable action) {
+            if (pendingFrame == action) {
+                pendingFrame = null;
+            }
+        }
+
+        static boolean runFrame() {
+            Runnable action = pendingFrame;
+            pendingFrame = null;
+            if (action == null) {
+                return false;
+            }
+            action.run();
+            return true;
+        }
+    }
+
+    private com.sun.management.ThreadMXBean threadMXBean;
+
+    private StretchableListView listView;
+    //header/footer内部高度变化的View
+    private ShadowView[] spacers;
+    //Robolectric中一次View.requestLayout的分配量
+    private long requestLayoutBytes;
+
+    @Before
+    public void setUp() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        threadMXBean = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threadMXBean.isThreadAllocatedMemorySupported());
+        threadMXBean.setThreadAllocatedMemoryEnabled(true);
+
+        //释放动画由测试逐帧推进, 不让Looper执行已安排的帧
+        ShadowLooper.pauseMainLooper();
+        ShadowFrameRunQueue.pendingFrame = null;
+
+        listView = new StretchableListView(RuntimeEnvironment.application);
+        StretchableView header = new StretchableView(RuntimeEnvironment.application, 0, 0);
+        StretchableView footer = new StretchableView(RuntimeEnvironment.application, 0, 1);
+        listView.addHeaderView(header);
+        listView.addFooterView(footer);
+        spacers = new ShadowView[]{Shadows.shadowOf(header.getChildAt(0)), Shadows.shadowOf(footer.getChildAt(0))};
+        String[] items = new String[50];
+        for (int i = 0; i < items.length; i++) {
+            items[i] = "item " + i;
+        }
+        listView.setAdapter(new ArrayAdapter<>(RuntimeEnvironment.application, android.R.layout.simple_list_item_1, items));
+        listView.measure(View.MeasureSpec.makeMeasureSpec(480, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(800, View.MeasureSpec.EXACTLY));
+        listView.layout(0, 0, 480, 800);
+
+        //预热: 类加载, 延迟创建的对象等只在第一次拉伸时分配
+        warmUp();
+
+        View probe = new View(RuntimeEnvironment.application);
+        for (int i = 0; i < 10; i++) {
+            probe.requestLayout();
+        }
+        long before = allocatedBytes();
+        long start = allocatedBytes();
+        probe.requestLayout();
+        requestLayoutBytes = allocatedBytes() - start - (start - before);
+    }
+
+    @Test
+    public void moveEventsDoNotAllocate() {
+        MotionEvent[] events = obtainGesture();
+        listView.onTouchEvent(events[0]);
+        int stretchedMoves = 0;
+        int appliedFrames = 0;
+        for (int i = 1; i <= MOVES; i++) {
+            resetSpacers();
+            long before = allocatedBytes();
+            long start = allocatedBytes();
+            boolean stretching = listView.onTouchEvent(events[i]);
+            //扣除统计本身的开销, 如getThreadAllocatedBytes内部的数组
+            long allocated = allocatedBytes() - start - (start - before) - spacerOverhead();
+            //拉伸开始前的事件交给ListView自身处理, 不在统计范围内
+            if (stretching) {
+                stretchedMoves++;
+                assertEquals("bytes allocated by ACTION_MOVE #" + i, 0, allocated);
+            }
+
+            //下一帧应用合并后的拉伸
+            resetSpacers();
+            before = allocatedBytes();
+            start = allocatedBytes();
+            boolean applied = ShadowFrameRunQueue.runFrame();
+            allocated = allocatedBytes() - start - (start - before) - spacerOverhead();
+            if (applied) {
+                appliedFrames++;
+                assertEquals("bytes allocated by stretch frame after ACTION_MOVE #" + i, 0, allocated);
+            }
+        }
+        assertTrue("header should be stretched", stretchedMoves > MOVES / 2);
+        assertTrue("stretch should be applied on frames", appliedFrames > MOVES / 2);
+        listView.onTouchEvent(events[MOVES + 1]);
+        recycle(events);
+    }
+
+    @Test
+    public void releaseFramesDoNotAllocate() {
+        assertReleaseFramesDoNotAllocate();
+    }
+
+    @Test
+    public void springReleaseFramesDoNotAllocate() {
+        listView.setReleaseAnimationEngine(new SpringAnimationEngine());
+        warmUp();
+        assertReleaseFramesDoNotAllocate();
+    }
+
+    private void assertReleaseFramesDoNotAllocate() {
+        stretchAndRelease();
+
+        VerticalResizeAnimation animation = listView.getResizeAnimation();
+        assertNotNull(animation);
+        assertTrue("release animation should be running", animation.isScrolling());
+        long frameTime = SystemClock.uptimeMillis() * 1000000L;
+        for (int frame = 0; frame < MAX_FRAMES; frame++) {
+            frameTime += FRAME_NANOS;
+            resetSpacers();
+            long before = allocatedBytes();
+            long start = allocatedBytes();
+            boolean running = animation.step(frameTime);
+            long allocated = allocatedBytes() - start - (start - before) - spacerOverhead();
+            if (!running) {
+                //最后一帧回调complete, 不属于逐帧的开销
+                return;
+            }
+            assertEquals("bytes allocated by release frame #" + frame, 0, allocated);
+        }
+        assertFalse("release animation did not finish", animation.isScrolling());
+    }
+
+    private void warmUp() {
+        stretchAndRelease();
+        VerticalResizeAnimation animation = listView.getResizeAnimation();
+        long frameTime = SystemClock.uptimeMillis() * 1000000L;
+        for (int frame = 0; frame < MAX_FRAMES && animation.step(frameTime); frame++) {
+            frameTime += FRAME_NANOS;
+        }
+    }
+
+    //拖动并逐帧应用拉伸, 最后抬起开始释放动画
+    private void stretchAndRelease() {
+        MotionEvent[] events = obtainGesture();
+        for (MotionEvent event : events) {
+            listView.onTouchEvent(event);
+            ShadowFrameRunQueue.runFrame();
+        }
+        recycle(events);
+    }
+
+    //从顶部向下拖动, 拉伸header后抬起
+    private MotionEvent[] obtainGesture() {
+        MotionEvent[] events = new MotionEvent[MOVES + 2];
+        long downTime = SystemClock.uptimeMillis();
+        float y = 100;
+        events[0] = MotionEvent.obtain(downTime, downTime, MotionEvent.ACTION_DOWN, 240, y, 0);
+        for (int i = 1; i <= MOVES; i++) {
+            y += 10;
+            events[i] = MotionEvent.obtain(downTime, downTime + i * 16, MotionEvent.ACTION_MOVE, 240, y, 0);
+        }
+        events[MOVES + 1] = MotionEvent.obtain(downTime, downTime + (MOVES + 1) * 16, MotionEvent.ACTION_UP, 240, y, 0);
+        return events;
+    }
+
+    private static void recycle(MotionEvent[] events) {
+        for (MotionEvent event : events) {
+            event.recycle();
+        }
+    }
+
+    private void resetSpacers() {
+        for (ShadowView spacer : spacers) {
+            spacer.setDidRequestLayout(false);
+        }
+    }
+
+    //Robolectric中requestLayout的开销, 设备上没有
+    private long spacerOverhead() {
+        long overhead = 0;
+        for (ShadowView spacer : spacers) {
+            if (spacer.didRequestLayout()) {
+                overhead += requestLayoutBytes;
+            }
+        }
+        return overhead;
+    }
+
+    private long allocatedBytes() {
+        return threadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,201 @@
+package com.ttwishing.stretchablelistview.library;
+
+import com.ttwishing.stretchablelistview.library.util.ListUtils;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class StretchStateMachineTest {
+
+    private static final int TOUCH_SLOP = 8;
+
+    private final List<String> calls = new ArrayList<>();
+    private StretchStateMachine stateMachine;
+
+    @Before
+    public void setUp() {
+        stateMachine = new StretchStateMachine(new StretchStateMachine.Callback() {
+            @Override
+            public void onStretchTouch(float y) {
+            }
+
+            @Override
+            public void onStretchRestore(int lastStretch) {
+                calls.add("restore " + lastStretch);
+            }
+
+            @Override
+            public void onStretchStart(int lastStretch, int stretch) {
+                calls.add("start " + lastStretch + " " + stretch);
+            }
+
+            @Override
+            public void onStretchChanged(int lastStretch, int stretch, boolean isStretchDown) {
+                calls.add("changed " + lastStretch + " " + stretch);
+            }
+        }, TOUCH_SLOP);
+        //手势下滑, 列表在顶部
+        stateMachine.setScrollDirection(ListUtils.ScrollDirection.UP);
+    }
+
+    //列表在顶部, 第一个item完整可见
+    private boolean moveAtTop(float y) {
+        return stateMachine.onMove(y, true, true, false, false);
+    }
+
+    @Test
+    public void pullAtTopStretchesHalfTheDistance() {
+        assertTrue(moveAtTop(100));
+        assertEquals(0, stateMachine.getLastStretch());
+        assertTrue(moveAtTop(160));
+        assertEquals(-30, stateMachine.getLastStretch());
+        assertTrue(calls.contains("start 0 -30"));
+        assertTrue(calls.contains("changed 0 -30"));
+    }
+
+    @Test
+    public void moveAwayFromEdgeEndsStretch() {
+        moveAtTop(100);
+        moveAtTop(160);
+        assertTrue(stateMachine.onMove(170, false, false, false, false));
+        assertEquals(0, stateMachine.getLastStretch());
+        assertFalse(stateMachine.onMove(180, false, false, false, false));
+    }
+
+    @Test
+    public void resetReturnsLastStretch() {
+        moveAtTop(100);
+        moveAtTop(160);
+        assertEquals(-30, stateMachine.reset());
+        assertEquals(0, stateMachine.getLastStretch());
+    }
+
+    @Test
+    public void grabContinuesFromStretch() {
+        stateMachine.grab(200, -30);
+        calls.clear();
+        assertTrue(moveAtTop(200));
+        assertEquals(-30, stateMachine.getLastStretch());
+        assertTrue(calls.isEmpty());
+        moveAtTop(220);
+        assertEquals(-40, stateMachine.getLastStretch());
+        assertEquals("changed -30 -40", calls.get(0));
+    }
+
+    @Test
+    public void resistanceTableMapsDistance() {
+        stateMachine.setResistanceTable(new int[]{0, 0, 1, 1, 2, 2, 3});
+        moveAtTop(100);
+        moveAtTop(104);
+        assertEquals(-2, stateMachine.getLastStretch());
+        //超出查找表时取最后一项
+        moveAtTop(200);
+        assertEquals(-3, stateMachine.getLastStretch());
+    }
+
+    @Test
+    public void grabWithResistanceTableUsesShortestDistance() {
+        stateMachine.setResistanceTable(new int[]{0, 0, 1, 1, 2, 2, 3});
+        stateMachine.grab(200, -2);
+        moveAtTop(200);
+        assertEquals(-2, stateMachine.getLastStretch());
+        //往回1像素即低于该高度
+        moveAtTop(199);
+        assertEquals(-1, stateMachine.getLastStretch());
+    }
+
+    @Test
+    public void grabAtResistanceTableLimit() {
+        stateMachine.setResistanceTable(new int[]{0, 0, 1, 1, 2, 2, 3});
+        stateMachine.grab(200, -5);
+        moveAtTop(200);
+        assertEquals(-3, stateMachine.getLastStretch());
+    }
+
+    @Test
+    public void offsetMotionYKeepsStretch() {
+        moveAtTop(100);
+        moveAtTop(160);
+        //换成y坐标大50的手指
+        stateMachine.offsetMotionY(50);
+        moveAtTop(210);
+        assertEquals(-30, stateMachine.getLastStretch());
+    }
+
+    @Test
+    public void offsetMotionYIgnoredBeforeStretch() {
+        stateMachine.offsetMotionY(50);
+        moveAtTop(100);
+        moveAtTop(160);
+        assertEquals(-30, stateMachine.getLastStretch());
+    }
+
+    @Test
+    public void pushAtBottomStretchesPositive() {
+        stateMachine.setScrollDirection(ListUtils.ScrollDirection.DOWN);
+        assertFalse(stateMachine.willStretch(true, true, false, false));
+        assertTrue(stateMachine.willStretch(false, false, true, true));
+        stateMachine.onMove(500, false, false, true, true);
+        stateMachine.onMove(440, false, false, true, true);
+        assertEquals(30, stateMachine.getLastStretch());
+    }
+
+    @Test
+    public void onScrollSetsDirection() {
+        stateMachine.onDown();
+        //onDown后的第一次onScroll被跳过
+        stateMachine.onScroll(20);
+        assertEquals(ListUtils.ScrollDirection.UP, stateMachine.getScrollDirection());
+        stateMachine.onScroll(20);
+        assertEquals(ListUtils.ScrollDirection.DOWN, stateMachine.getScrollDirection());
+        stateMachine.onScroll(-1);
+        assertEquals(ListUtils.ScrollDirection.UP, stateMachine.getScrollDirection());
+    }
+
+    @Test
+    public void onScrollAccumulatesSameDirection() {
+        stateMachine.onScroll(20);
+        stateMachine.onScroll(10);
+        assertEquals(30, stateMachine.getScrolledDistance(), 0);
+        //反向但小于touchSlop时仍累加
+        stateMachine.onScroll(-4);
+        assertEquals(26, stateMachine.getScrolledDistance(), 0);
+        //反向且超过touchSlop时清零
+        stateMachine.onScroll(-20);
+        assertEquals(0, stateMachine.getScrolledDistance(), 0);
+    }
+
+    @Test
+    public void onFlingSetsDirectionAndVelocity() {
+        stateMachine.onFling(0, 1000);
+        assertEquals(ListUtils.ScrollDirection.UP, stateMachine.getScrollDirection());
+        assertEquals(1000, stateMachine.getFlingVelocityY(), 0);
+        assertEquals(-1000, stateMachine.getScrolledDistance(), 0);
+
+        stateMachine.onFling(0, -1000);
+        assertEquals(ListUtils.ScrollDirection.DOWN, stateMachine.getScrollDirection());
+        assertEquals(-1000, stateMachine.getFlingVelocityY(), 0);
+    }
+
+    @Test
+    public void horizontalFlingKeepsVelocity() {
+        stateMachine.onFling(0, 1000);
+        stateMachine.onFling(2000, -500);
+        assertEquals(1000, stateMachine.getFlingVelocityY(), 0);
+        stateMachine.onFling(300, 0);
+        assertEquals(ListUtils.ScrollDirection.DOWN, stateMachine.getScrollDirection());
+    }
+
+    @Test
+    public void onDownClearsFlingVelocity() {
+        stateMachine.onFling(0, 1000);
+        stateMachine.onDown();
+        assertEquals(0, stateMachine.getFlingVelocityY(), 0);
+        assertEquals(0, stateMachine.getScrolledDistance(), 0);
+    }
+}